@@ -2,6 +2,7 @@ package chainOfResponsibility.eb;
 
 abstract class AbstractErrorHandler implements ErrorHandler {
     protected ErrorHandler next;
+    private RecoveryMetrics metrics;
 
     @Override
     public ErrorHandler setNext(ErrorHandler next) {
@@ -9,15 +10,25 @@ abstract class AbstractErrorHandler implements ErrorHandler {
         return next;
     }
 
+    void setMetrics(RecoveryMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     @Override
     public RecoveryResult handle(Exception exception, OrderContext context) {
         if (canHandle(exception)) {
+            long start = System.nanoTime();
             try {
-                return attemptRecovery(exception, context);
+                RecoveryResult result = attemptRecovery(exception, context);
+                record(true, start);
+                return result;
             } catch (Exception e) {
+                record(false, start);
                 // Recovery failed, try next handler
                 if (next != null) {
-                    return next.handle(exception, context);
+                    Exception failure = e instanceof RecoveryFailedException
+                            ? ((RecoveryFailedException) e).failure(exception) : exception;
+                    return next.handle(failure, context);
                 }
                 return RecoveryResult.failure("All recovery attempts exhausted");
             }
@@ -31,6 +42,12 @@ abstract class AbstractErrorHandler implements ErrorHandler {
                 exception.getClass().getSimpleName());
     }
 
+    private void record(boolean recovered, long start) {
+        if (metrics != null) {
+            metrics.recordHandler(getClass().getSimpleName(), recovered, System.nanoTime() - start);
+        }
+    }
+
     protected abstract RecoveryResult attemptRecovery(Exception exception,
                                                       OrderContext context)
             throws Exception;
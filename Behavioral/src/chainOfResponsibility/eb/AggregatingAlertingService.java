@@ -0,0 +1,130 @@
+package chainOfResponsibility.eb;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collapses alert storms into one summary per (service, exception type) per window.
+ * Order threads only record into an in-memory window; the delegate is called from
+ * a background thread when the window closes. After close() alerts go straight to the
+ * delegate on the caller's thread, so nothing recorded during shutdown is lost.
+ */
+public class AggregatingAlertingService implements AlertingService, AutoCloseable {
+    private final AlertingService delegate;
+    private final int maxSamples;
+    private final ConcurrentHashMap<String, Window> windows;
+    private final ScheduledExecutorService sender;
+    private volatile boolean closed;
+
+    public AggregatingAlertingService(AlertingService delegate, long windowMs, int maxSamples) {
+        if (windowMs <= 0) throw new IllegalArgumentException("windowMs must be positive: " + windowMs);
+        this.delegate = delegate;
+        this.maxSamples = maxSamples;
+        this.windows = new ConcurrentHashMap<>();
+
+        this.sender = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "alert-aggregator");
+            t.setDaemon(true);
+            return t;
+        });
+        this.sender.scheduleAtFixedRate(this::flush, windowMs, windowMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void alert(String title, String message) {
+        record(title, "n/a", message);
+    }
+
+    @Override
+    public void alertFailure(String service, Exception exception, OrderContext context) {
+        record(exception.getClass().getSimpleName(), service, context.getOrderId());
+    }
+
+    private void record(String type, String service, String sample) {
+        String key = service + "|" + type;
+        while (true) {
+            Window window = windows.computeIfAbsent(key, k -> new Window(type, service));
+            // A closed window was already handed to the sender; start a fresh one
+            if (window.add(sample, maxSamples)) break;
+            windows.remove(key, window);
+        }
+        // Raced with close(): its final flush may have missed this sample, so flush again
+        if (closed) flush();
+    }
+
+    private void flush() {
+        for (Map.Entry<String, Window> entry : windows.entrySet()) {
+            Window window = entry.getValue();
+            windows.remove(entry.getKey(), window);
+            Summary summary = window.close();
+            if (summary == null || summary.count == 0) continue;
+            try {
+                delegate.alert(
+                        "[" + summary.service + "] " + summary.type + " x" + summary.count,
+                        "Failures in last window: " + summary.count +
+                                ", Sample orders: " + summary.samples);
+            } catch (RuntimeException e) {
+                // Never let a broken backend kill the scheduled sender
+                System.err.println("Alert delivery failed: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        sender.shutdown();
+        try {
+            sender.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Still deliver the last window below
+        }
+        flush(); // Deliver whatever the last partial window collected
+    }
+
+    private static class Window {
+        private final String type;
+        private final String service;
+        private final List<String> samples = new ArrayList<>();
+        private long count;
+        private boolean closed;
+
+        Window(String type, String service) {
+            this.type = type;
+            this.service = service;
+        }
+
+        synchronized boolean add(String sample, int maxSamples) {
+            if (closed) return false;
+            count++;
+            if (samples.size() < maxSamples) samples.add(sample);
+            return true;
+        }
+
+        // Null if another flush already took this window
+        synchronized Summary close() {
+            if (closed) return null;
+            closed = true;
+            return new Summary(type, service, count, List.copyOf(samples));
+        }
+    }
+
+    private static class Summary {
+        final String type;
+        final String service;
+        final long count;
+        final List<String> samples;
+
+        Summary(String type, String service, long count, List<String> samples) {
+            this.type = type;
+            this.service = service;
+            this.count = count;
+            this.samples = samples;
+        }
+    }
+}
@@ -2,4 +2,14 @@ package chainOfResponsibility.eb;
 
 public interface AlertingService {
     void alert(String title, String message);
+
+    // Structured variant used by EscalationHandler so aggregating implementations
+    // can group by service and exception type instead of parsing free text
+    default void alertFailure(String service, Exception exception, OrderContext context) {
+        alert("Order processing failed",
+                "OrderId: " + context.getOrderId() +
+                        ", Service: " + service +
+                        ", Exception: " + exception.getMessage() +
+                        ", Attempts: " + context.getRetryCount());
+    }
 }
@@ -17,11 +17,11 @@ public class CompensationHandler extends AbstractErrorHandler {
     @Override
     protected RecoveryResult attemptRecovery(Exception exception,
                                              OrderContext context) throws Exception {
-        context.addAttemptedRecovery("COMPENSATION");
+        context.addAttemptedRecovery(OrderContext.RecoveryStep.COMPENSATION);
         context.getOrder().setStatus(Order.OrderStatus.COMPENSATING);
 
-        // Rollback completed steps
-        compensationService.compensate(context.getOrder());
+        // Rollback only the steps that actually completed
+        compensationService.compensate(context.getOrder(), context.getCompletedSteps());
 
         // Log for manual review
         compensationService.logForReview(context.getOrderId(), exception.getMessage());
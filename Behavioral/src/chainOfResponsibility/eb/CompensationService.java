@@ -1,6 +1,13 @@
 package chainOfResponsibility.eb;
 
+import java.util.EnumSet;
+
 public interface CompensationService {
     void compensate(Order order);
     void logForReview(String orderId, String reason);
+
+    // Undo only the checkpointed steps; implementations should roll back in reverse order
+    default void compensate(Order order, EnumSet<WorkflowStep> completedSteps) {
+        if (!completedSteps.isEmpty()) compensate(order);
+    }
 }
@@ -0,0 +1,21 @@
+package chainOfResponsibility.eb;
+
+public class DeadLetter {
+    private final Order order;
+    private final String service;
+    private final String reason;
+    private final long escalatedAt;
+
+    public DeadLetter(Order order, String service, String reason, long escalatedAt) {
+        this.order = order;
+        this.service = service;
+        this.reason = reason;
+        this.escalatedAt = escalatedAt;
+    }
+
+    public Order getOrder() { return order; }
+    public String getOrderId() { return order.getOrderId(); }
+    public String getService() { return service; }
+    public String getReason() { return reason; }
+    public long getEscalatedAt() { return escalatedAt; }
+}
@@ -0,0 +1,146 @@
+package chainOfResponsibility.eb;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Feeds dead-lettered orders back through OrderService after an incident.
+ * Submissions are paced to a fixed rate and at most {@code parallelism} orders are in
+ * flight. Orders that complete without being escalated again are marked resolved.
+ */
+public class DeadLetterReplayer {
+    private final DeadLetterStore store;
+    private final OrderService orderService;
+
+    public DeadLetterReplayer(DeadLetterStore store, OrderService orderService) {
+        this.store = store;
+        this.orderService = orderService;
+    }
+
+    public ReplayReport replay(int ordersPerSecond, int parallelism) throws InterruptedException {
+        List<String> pending = store.pendingOrderIds();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, ordersPerSecond);
+        Semaphore inFlight = new Semaphore(parallelism);
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "dlq-replay");
+            t.setDaemon(true);
+            return t;
+        });
+
+        LongAdder resolved = new LongAdder();
+        LongAdder escalatedAgain = new LongAdder();
+        LongAdder errors = new LongAdder();
+
+        long next = System.nanoTime();
+        for (String orderId : pending) {
+            // Pace by schedule, not by sleeping a fixed interval, so slow batches catch up
+            long wait = next - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+            next += intervalNanos;
+
+            inFlight.acquire();
+            workers.execute(() -> {
+                try {
+                    DeadLetter letter = store.get(orderId);
+                    if (letter == null) return; // Resolved by someone else meanwhile
+
+                    OrderResult result = orderService.processOrder(letter.getOrder());
+                    if (isResolved(result)) {
+                        store.markResolved(orderId);
+                        resolved.increment();
+                    } else {
+                        escalatedAgain.increment();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    errors.increment();
+                    System.err.println("Replay failed for " + orderId + ": " + e.getMessage());
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.HOURS);
+        return new ReplayReport(pending.size(), resolved.sum(), escalatedAgain.sum(), errors.sum());
+    }
+
+    private static boolean isResolved(OrderResult result) {
+        if (!result.isSuccess()) return false;
+        RecoveryResult recovery = result.getRecovery();
+        return recovery == null ||
+                recovery.getActionTaken() != RecoveryResult.RecoveryAction.ESCALATED;
+    }
+
+    public static class ReplayReport {
+        private final int attempted;
+        private final long resolved;
+        private final long escalatedAgain;
+        private final long errors;
+
+        ReplayReport(int attempted, long resolved, long escalatedAgain, long errors) {
+            this.attempted = attempted;
+            this.resolved = resolved;
+            this.escalatedAgain = escalatedAgain;
+            this.errors = errors;
+        }
+
+        public int getAttempted() { return attempted; }
+        public long getResolved() { return resolved; }
+        public long getEscalatedAgain() { return escalatedAgain; }
+        public long getErrors() { return errors; }
+
+        @Override
+        public String toString() {
+            return "attempted=" + attempted + ", resolved=" + resolved +
+                    ", escalatedAgain=" + escalatedAgain + ", errors=" + errors;
+        }
+    }
+
+    // --- MAIN DRIVER ---
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("dlq-demo");
+        FallbackService fallbackService = order -> true;
+        CompensationService compensationService = new CompensationService() {
+            public void compensate(Order order) {
+            }
+            public void logForReview(String orderId, String reason) {
+            }
+        };
+        AlertingService alertingService = (title, msg) -> { };
+
+        try (DeadLetterStore store = new DeadLetterStore(directory, 64 * 1024)) {
+            OrderService orderService = new OrderService(fallbackService,
+                    compensationService, alertingService, null, store);
+
+            // Simulated outage: every inventory call times out and gets escalated
+            AtomicBoolean outage = new AtomicBoolean(true);
+            orderService.setFaultInjector((step, context) -> {
+                if (outage.get() && step == WorkflowStep.INVENTORY) {
+                    throw TimeoutException.stackless(step);
+                }
+            });
+
+            for (int i = 0; i < 1_000; i++) {
+                orderService.processOrder(new Order("order-dlq-" + i,
+                        List.of(new OrderItem("prod1", 1, new BigDecimal("5.00"))),
+                        new BigDecimal("5.00")));
+            }
+            System.out.println("Dead-lettered during outage: " + store.size());
+
+            outage.set(false);
+            ReplayReport report = new DeadLetterReplayer(store, orderService).replay(500, 8);
+            System.out.println("Replay: " + report + ", still pending: " + store.size());
+        }
+    }
+}
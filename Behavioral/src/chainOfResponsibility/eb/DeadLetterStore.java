@@ -0,0 +1,346 @@
+package chainOfResponsibility.eb;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, segmented dead-letter log for escalated orders.
+ *
+ * Segment files are named dlq-NNNNNNNN.log and hold records of
+ * [int length][int crc32][byte type][payload]. A PUT record stores the order,
+ * a RESOLVED record marks it as successfully replayed. The orderId index
+ * (orderId -> segment/offset of the latest PUT) is rebuilt by scanning segments on open.
+ * A torn record at the tail of the last segment is truncated away; in sealed segments a
+ * record with a bad checksum is logged and skipped, and a broken frame fails the open.
+ *
+ * By default every append is fsynced before it returns, so an acknowledged dead letter
+ * survives a crash. The fsync happens outside the store lock and covers every record
+ * written so far, so concurrent escalations share one flush instead of queueing behind
+ * each other's. With syncOnWrite off, writes only reach the device on sync() or close().
+ *
+ * Once every PUT in the oldest sealed segments is resolved or superseded, those segments
+ * are closed and deleted. Only a prefix is removed, so a RESOLVED record is never lost
+ * while the PUT it cancels is still on disk.
+ */
+public class DeadLetterStore implements AutoCloseable {
+    private static final byte PUT = 0;
+    private static final byte RESOLVED = 1;
+    private static final int HEADER_BYTES = 8;
+
+    private final Path directory;
+    private final long maxSegmentBytes;
+    private final boolean syncOnWrite;
+    private final Map<String, Location> index = new HashMap<>();
+    private final Map<Integer, Integer> liveRecords = new HashMap<>();
+    private final TreeMap<Integer, RandomAccessFile> segments = new TreeMap<>();
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+    private final CRC32 crc = new CRC32();
+
+    private RandomAccessFile active;
+    private int activeSegment;
+    private long written; // Records committed so far, guarded by this
+
+    private final Object syncLock = new Object();
+    private volatile long synced; // Records known to be on the device
+
+    public DeadLetterStore(Path directory, long maxSegmentBytes) throws IOException {
+        this(directory, maxSegmentBytes, true);
+    }
+
+    public DeadLetterStore(Path directory, long maxSegmentBytes, boolean syncOnWrite) throws IOException {
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.syncOnWrite = syncOnWrite;
+        Files.createDirectories(directory);
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "dlq-*.log")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                int id = Integer.parseInt(name.substring(4, name.length() - 4));
+                segments.put(id, new RandomAccessFile(file.toFile(), "rw"));
+            }
+        }
+        for (Map.Entry<Integer, RandomAccessFile> segment : segments.entrySet()) {
+            scan(segment.getKey(), segment.getValue(), segment.getKey().equals(segments.lastKey()));
+        }
+
+        if (segments.isEmpty()) {
+            roll();
+        } else {
+            activeSegment = segments.lastKey();
+            active = segments.get(activeSegment);
+            active.seek(active.length());
+        }
+        deleteResolvedSegments();
+    }
+
+    public void append(OrderContext context, Exception exception) throws IOException {
+        long record;
+        synchronized (this) {
+            Object service = context.getMetadata(OrderContext.FAILED_SERVICE);
+            DataOutputStream out = begin(PUT);
+            writeOrder(out, context.getOrder());
+            out.writeUTF(service != null ? service.toString() : "unknown");
+            out.writeUTF(exception.getClass().getSimpleName() + ": " + exception.getMessage());
+            out.writeLong(System.currentTimeMillis());
+            track(context.getOrderId(), commit());
+            record = written;
+        }
+        awaitDurable(record);
+    }
+
+    public void markResolved(String orderId) throws IOException {
+        long record;
+        synchronized (this) {
+            if (!index.containsKey(orderId)) return;
+            begin(RESOLVED).writeUTF(orderId);
+            commit();
+            untrack(orderId);
+            deleteResolvedSegments();
+            record = written;
+        }
+        awaitDurable(record);
+    }
+
+    public synchronized DeadLetter get(String orderId) throws IOException {
+        Location location = index.get(orderId);
+        return location == null ? null : read(location);
+    }
+
+    public synchronized List<String> pendingOrderIds() {
+        return new ArrayList<>(index.keySet());
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    // Flushes file contents to the device; only needed when syncOnWrite is off
+    public synchronized void sync() throws IOException {
+        active.getFD().sync();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        sync();
+        for (RandomAccessFile segment : segments.values()) segment.close();
+    }
+
+    private DataOutputStream begin(byte type) throws IOException {
+        buffer.reset();
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeByte(type);
+        return out;
+    }
+
+    private Location commit() throws IOException {
+        if (active.length() + HEADER_BYTES + buffer.size() > maxSegmentBytes && active.length() > 0) {
+            roll();
+        }
+        byte[] payload = buffer.toByteArray();
+        crc.reset();
+        crc.update(payload);
+
+        long offset = active.length();
+        try {
+            active.seek(offset);
+            active.writeInt(payload.length);
+            active.writeInt((int) crc.getValue());
+            active.write(payload);
+        } catch (IOException e) {
+            // Drop the partial record so the next append does not land behind a torn frame
+            try {
+                active.setLength(offset);
+            } catch (IOException truncate) {
+                e.addSuppressed(truncate);
+            }
+            throw e;
+        }
+        written++;
+        return new Location(activeSegment, offset);
+    }
+
+    // Group commit: one fsync covers every record written before it started, so a caller
+    // whose record was flushed by someone else's sync returns without syncing again
+    private void awaitDurable(long record) throws IOException {
+        if (!syncOnWrite) return;
+        synchronized (syncLock) {
+            if (synced >= record) return;
+            long target;
+            RandomAccessFile file;
+            synchronized (this) {
+                target = written;
+                file = active; // Earlier segments were synced when they were rolled
+            }
+            file.getFD().sync();
+            synced = target;
+        }
+    }
+
+    private void track(String orderId, Location location) {
+        Location previous = index.put(orderId, location);
+        if (previous != null) liveRecords.merge(previous.segment, -1, Integer::sum);
+        liveRecords.merge(location.segment, 1, Integer::sum);
+    }
+
+    private void untrack(String orderId) {
+        Location previous = index.remove(orderId);
+        if (previous != null) liveRecords.merge(previous.segment, -1, Integer::sum);
+    }
+
+    private void deleteResolvedSegments() throws IOException {
+        while (segments.firstKey() != activeSegment && liveRecords.getOrDefault(segments.firstKey(), 0) == 0) {
+            int id = segments.firstKey();
+            segments.remove(id).close();
+            liveRecords.remove(id);
+            Files.deleteIfExists(segmentPath(id));
+        }
+    }
+
+    private Path segmentPath(int id) {
+        return directory.resolve(String.format("dlq-%08d.log", id));
+    }
+
+    private void roll() throws IOException {
+        if (active != null) active.getFD().sync(); // Seal the old segment before moving on
+        activeSegment = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        active = new RandomAccessFile(segmentPath(activeSegment).toFile(), "rw");
+        segments.put(activeSegment, active);
+    }
+
+    private void scan(int segmentId, RandomAccessFile file, boolean last) throws IOException {
+        long offset = 0;
+        long length = file.length();
+        while (offset < length) {
+            long end = recordEnd(file, offset);
+            if (end < 0) {
+                if (!last) {
+                    throw new IOException("Broken record frame in sealed segment " + segmentId +
+                            " at offset " + offset);
+                }
+                // Torn write from a crash: drop the partial tail of the active segment
+                System.err.println("Dead-letter segment " + segmentId + ": truncating torn tail at offset " +
+                        offset + " (" + (length - offset) + " bytes)");
+                file.setLength(offset);
+                break;
+            }
+
+            byte[] payload = readPayload(file, offset);
+            if (payload == null) {
+                if (last && end == length) {
+                    System.err.println("Dead-letter segment " + segmentId + ": truncating torn tail at offset " + offset);
+                    file.setLength(offset);
+                    break;
+                }
+                // Framing is intact, so the following records are still reachable
+                System.err.println("Dead-letter segment " + segmentId + ": skipping record with bad checksum at offset " + offset);
+                offset = end;
+                continue;
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            byte type = in.readByte();
+            if (type == PUT) {
+                track(in.readUTF(), new Location(segmentId, offset));
+            } else {
+                untrack(in.readUTF());
+            }
+            offset = end;
+        }
+    }
+
+    // End offset of the record at offset, or -1 if its header or body runs past the file
+    private static long recordEnd(RandomAccessFile file, long offset) throws IOException {
+        long length = file.length();
+        if (offset + HEADER_BYTES > length) return -1;
+        file.seek(offset);
+        int size = file.readInt();
+        long end = offset + HEADER_BYTES + size;
+        return size < 0 || end > length ? -1 : end;
+    }
+
+    private DeadLetter read(Location location) throws IOException {
+        byte[] payload = readPayload(segments.get(location.segment), location.offset);
+        if (payload == null) throw new IOException("Corrupt dead letter at " + location);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        in.readByte();
+        Order order = readOrder(in);
+        return new DeadLetter(order, in.readUTF(), in.readUTF(), in.readLong());
+    }
+
+    private byte[] readPayload(RandomAccessFile file, long offset) throws IOException {
+        if (offset + HEADER_BYTES > file.length()) return null;
+        file.seek(offset);
+        int length = file.readInt();
+        int checksum = file.readInt();
+        if (length < 0 || offset + HEADER_BYTES + length > file.length()) return null;
+
+        byte[] payload = new byte[length];
+        try {
+            file.readFully(payload);
+        } catch (EOFException e) {
+            return null;
+        } finally {
+            file.seek(file.length()); // Leave the pointer at the append position
+        }
+        crc.reset();
+        crc.update(payload);
+        return (int) crc.getValue() == checksum ? payload : null;
+    }
+
+    private static void writeOrder(DataOutputStream out, Order order) throws IOException {
+        out.writeUTF(order.getOrderId());
+        out.writeUTF(order.getTotalAmount().toPlainString());
+        out.writeInt(order.getItems().size());
+        for (OrderItem item : order.getItems()) {
+            out.writeUTF(item.getProductId());
+            out.writeInt(item.getQuantity());
+            out.writeUTF(item.getPrice().toPlainString());
+            out.writeByte(item.getPriceScale());
+        }
+    }
+
+    private static Order readOrder(DataInputStream in) throws IOException {
+        String orderId = in.readUTF();
+        BigDecimal total = new BigDecimal(in.readUTF());
+        int count = in.readInt();
+        List<OrderItem> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String productId = in.readUTF();
+            int quantity = in.readInt();
+            BigDecimal price = new BigDecimal(in.readUTF());
+            // Every stored item was built exactly at its scale, so this cannot round
+            items.add(new OrderItem(productId, quantity, price, in.readByte()));
+        }
+        return new Order(orderId, items, total);
+    }
+
+    private static class Location {
+        final int segment;
+        final long offset;
+
+        Location(int segment, long offset) {
+            this.segment = segment;
+            this.offset = offset;
+        }
+
+        @Override
+        public String toString() {
+            return "segment " + segment + " offset " + offset;
+        }
+    }
+}
@@ -1,22 +1,36 @@
 package chainOfResponsibility.eb;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class ErrorHandlingInDTSDemo {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
         // Mock services
         FallbackService fallbackService = order -> true;
         CompensationService compensationService = new CompensationService() {
             public void compensate(Order order) {
                 System.out.println("Compensating order: " + order.getOrderId());
             }
+            public void compensate(Order order, EnumSet<WorkflowStep> completedSteps) {
+                List<WorkflowStep> undo = new ArrayList<>(completedSteps);
+                Collections.reverse(undo);
+                System.out.println("Compensating order: " + order.getOrderId() + " steps " + undo);
+            }
             public void logForReview(String orderId, String reason) {
                 System.out.println("Logged for review: " + orderId + " - " + reason);
             }
         };
-        AlertingService alertingService = (title, msg) ->
+        AlertingService pager = (title, msg) ->
                 System.out.println("ALERT: " + title + " - " + msg);
+        // One summary per service/exception type every 5s instead of one page per order
+        AggregatingAlertingService alertingService =
+                new AggregatingAlertingService(pager, 5000, 5);
 
         OrderService orderService = new OrderService(fallbackService,
                 compensationService,
@@ -31,6 +45,9 @@ public class ErrorHandlingInDTSDemo {
                 List.of(new OrderItem("prod2", 1, new BigDecimal("99.99"))),
                 new BigDecimal("99.99"));
 
+        System.out.println("=== Order 1 total (fixed point): " +
+                order1.computeTotal(Money.DEFAULT_SCALE) + " ===");
+
         System.out.println("=== Processing Order 1 (Transient Failure) ===");
         OrderResult result1 = orderService.processOrder(order1);
         System.out.println("Result: " + result1.getMessage());
@@ -38,5 +55,52 @@ public class ErrorHandlingInDTSDemo {
         System.out.println("\n=== Processing Order 2 (Payment Failure) ===");
         OrderResult result2 = orderService.processOrder(order2);
         System.out.println("Result: " + result2.getMessage());
+
+        System.out.println("\n=== Processing Order 2b (Payment Unavailable, Resumed) ===");
+        Order order2b = new Order("order-unavailable-321",
+                List.of(new OrderItem("prod2", 1, new BigDecimal("49.99"))),
+                new BigDecimal("49.99"));
+        OrderResult result2b = orderService.processOrder(order2b);
+        System.out.println("Result: " + result2b.getMessage());
+
+        System.out.println("\n=== Resubmitting Order 2 (Idempotent) ===");
+        IdempotentOrderService idempotentService =
+                new IdempotentOrderService(orderService, 10_000, 60_000);
+        idempotentService.processOrder(order2);
+        OrderResult duplicate = idempotentService.processOrder(order2);
+        System.out.println("Result (cached): " + duplicate.getMessage());
+
+        System.out.println("\n=== Processing Order 3 (Slow Primary, Hedged) ===");
+        // Hedge after the p95 primary latency (50ms until warmed up), at most 5% of traffic
+        OrderService hedgedService = new OrderService(fallbackService,
+                compensationService,
+                alertingService,
+                new HedgingPolicy(0.95, 50, 0.05, 10));
+        Order order3 = new Order("order-slow-789",
+                List.of(new OrderItem("prod3", 1, new BigDecimal("19.99"))),
+                new BigDecimal("19.99"));
+        OrderResult result3 = hedgedService.processOrder(order3);
+        System.out.println("Result: " + result3.getMessage());
+
+        System.out.println("\n=== Staged Pipeline (slow payment stage) ===");
+        Map<WorkflowStep, OrderPipeline.StageConfig> stages = new EnumMap<>(WorkflowStep.class);
+        stages.put(WorkflowStep.INVENTORY, new OrderPipeline.StageConfig(2, 4));
+        stages.put(WorkflowStep.PAYMENT, new OrderPipeline.StageConfig(2, 4));
+        stages.put(WorkflowStep.SHIPPING, new OrderPipeline.StageConfig(1, 4));
+        try (OrderPipeline pipeline = new OrderPipeline(orderService, stages)) {
+            List<CompletableFuture<OrderResult>> results = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                results.add(pipeline.submit(new Order("order-slow-" + i,
+                        List.of(new OrderItem("prod4", 1, new BigDecimal("9.99"))),
+                        new BigDecimal("9.99"))));
+            }
+            CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).join();
+            System.out.println("Stage stats: " + pipeline.getStageStats());
+        }
+
+        System.out.println("\n=== Recovery Metrics ===");
+        System.out.println(orderService.getMetricsSnapshot());
+
+        alertingService.close();
     }
 }
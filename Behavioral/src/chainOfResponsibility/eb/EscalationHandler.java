@@ -1,10 +1,19 @@
 package chainOfResponsibility.eb;
 
+import java.io.IOException;
+
 public class EscalationHandler extends AbstractErrorHandler {
     private final AlertingService alertingService;
+    private final DeadLetterStore deadLetterStore;
 
     public EscalationHandler(AlertingService alertingService) {
+        this(alertingService, null);
+    }
+
+    // With a store, escalated orders are persisted so they can be replayed later
+    public EscalationHandler(AlertingService alertingService, DeadLetterStore deadLetterStore) {
         this.alertingService = alertingService;
+        this.deadLetterStore = deadLetterStore;
     }
 
     @Override
@@ -15,18 +24,25 @@ public class EscalationHandler extends AbstractErrorHandler {
     @Override
     protected RecoveryResult attemptRecovery(Exception exception,
                                              OrderContext context) {
-        context.addAttemptedRecovery("ESCALATION");
+        context.addAttemptedRecovery(OrderContext.RecoveryStep.ESCALATION);
 
-        // Alert on-call
-        alertingService.alert(
-                "Order processing failed",
-                "OrderId: " + context.getOrderId() +
-                        ", Exception: " + exception.getMessage()
+        // Alert on-call; aggregating services batch these per window
+        Object service = context.getMetadata(OrderContext.FAILED_SERVICE);
+        alertingService.alertFailure(
+                service != null ? service.toString() : "unknown",
+                exception,
+                context
         );
 
-        // Log detailed context
-        System.err.println("ESCALATED - Order: " + context.getOrderId() +
-                ", Attempts: " + context.getRetryCount());
+        if (deadLetterStore != null) {
+            try {
+                deadLetterStore.append(context, exception);
+            } catch (IOException e) {
+                // The alert already went out; losing the DLQ copy must not fail escalation
+                System.err.println("Dead-letter write failed for " + context.getOrderId() +
+                        ": " + e.getMessage());
+            }
+        }
 
         return RecoveryResult.success(
                 "Escalated to on-call team",
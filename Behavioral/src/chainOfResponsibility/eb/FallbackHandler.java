@@ -1,10 +1,46 @@
 package chainOfResponsibility.eb;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class FallbackHandler extends AbstractErrorHandler {
+    // Primaries and hedges in flight at once; beyond that orders run inline, unhedged
+    private static final int MAX_HEDGE_THREADS = 64;
+
     private final FallbackService fallbackService;
+    private final OrderWorkflow workflow;
+    private final HedgingPolicy hedgingPolicy;
+    private final ExecutorService hedgeExecutor;
 
     public FallbackHandler(FallbackService fallbackService) {
+        this(fallbackService, null, null);
+    }
+
+    /**
+     * With a workflow, a successful fallback stands in for the failed step and the
+     * remaining steps are resumed from the checkpoint.
+     */
+    public FallbackHandler(FallbackService fallbackService, OrderWorkflow workflow,
+                           HedgingPolicy hedgingPolicy) {
         this.fallbackService = fallbackService;
+        this.workflow = workflow;
+        this.hedgingPolicy = hedgingPolicy;
+        this.hedgeExecutor = hedgingPolicy == null ? null : new ThreadPoolExecutor(
+                0, MAX_HEDGE_THREADS, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            Thread t = new Thread(r, "order-hedge");
+            t.setDaemon(true);
+            return t;
+        });
     }
 
     @Override
@@ -15,19 +51,143 @@ public class FallbackHandler extends AbstractErrorHandler {
     @Override
     protected RecoveryResult attemptRecovery(Exception exception,
                                              OrderContext context) throws Exception {
-        context.addAttemptedRecovery("FALLBACK");
+        // A hedge already ran the fallback for this order and it failed: don't call it again
+        if (context.hasAttempted(OrderContext.RecoveryStep.FALLBACK)) {
+            throw RecoveryFailedException.FALLBACK_FAILED;
+        }
+        context.addAttemptedRecovery(OrderContext.RecoveryStep.FALLBACK);
 
         // Try cached data or alternative service
         boolean fallbackSuccess = fallbackService.processWithFallback(context.getOrder());
 
         if (fallbackSuccess) {
-            return RecoveryResult.success(
-                    "Used fallback service/cached data",
-                    "FallbackHandler",
-                    RecoveryResult.RecoveryAction.FALLBACK_USED
-            );
+            resumeAfterFallback(context);
+            return fallbackUsed();
+        }
+
+        throw RecoveryFailedException.FALLBACK_FAILED;
+    }
+
+    private void resumeAfterFallback(OrderContext context) throws Exception {
+        if (workflow == null) return;
+        WorkflowStep failed = context.getFirstUnfinishedStep();
+        if (failed != null) context.markStepCompleted(failed);
+        try {
+            workflow.resume(context);
+        } catch (Exception e) {
+            throw RecoveryFailedException.FALLBACK_FAILED;
         }
+    }
+
+    boolean isHedging() {
+        return hedgingPolicy != null;
+    }
+
+    /**
+     * Runs the primary call, a single idempotent workflow step; if it is still running
+     * after the policy's percentile delay (and the hedge budget allows), races the fallback
+     * against it. The first success wins and the loser is cancelled. A cancelled primary is
+     * waited for, so it never touches the context after this returns; as in
+     * resumeAfterFallback, a winning fallback stands in for that one step only. When the
+     * hedge pool is saturated the primary runs on the caller's thread without a hedge, so
+     * load never doubles the thread count.
+     *
+     * @return null if the primary completed, a FALLBACK_USED result if the hedge won
+     * @throws Exception the primary's failure when no hedge succeeded
+     */
+    RecoveryResult executeHedged(Callable<Void> primary, OrderContext context) throws Exception {
+        hedgingPolicy.onRequest();
+        long start = System.currentTimeMillis();
+
+        CompletionService<Boolean> race = new ExecutorCompletionService<>(hedgeExecutor);
+        // 0 = not started, 1 = running, 2 = withdrawn before it started
+        AtomicInteger primaryState = new AtomicInteger();
+        CountDownLatch primaryStopped = new CountDownLatch(1);
+        Future<Boolean> primaryFuture;
+        try {
+            primaryFuture = race.submit(() -> {
+                if (!primaryState.compareAndSet(0, 1)) return Boolean.FALSE;
+                try {
+                    primary.call();
+                } finally {
+                    // Failed and cancelled primaries count too (the latter as a lower bound),
+                    // otherwise the slow tail would be missing from the percentile
+                    hedgingPolicy.recordPrimaryLatency(System.currentTimeMillis() - start);
+                    primaryStopped.countDown();
+                }
+                return Boolean.FALSE; // FALSE marks "primary finished"
+            });
+        } catch (RejectedExecutionException e) {
+            try {
+                primary.call();
+            } finally {
+                hedgingPolicy.recordPrimaryLatency(System.currentTimeMillis() - start);
+            }
+            return null;
+        }
+
+        Future<Boolean> first = race.poll(hedgingPolicy.hedgeDelayMs(), TimeUnit.MILLISECONDS);
+        if (first != null || !hedgingPolicy.tryAcquireHedge()) {
+            await(primaryFuture);
+            return null;
+        }
+
+        Future<Boolean> hedgeFuture;
+        try {
+            hedgeFuture = race.submit(() -> {
+                if (!fallbackService.processWithFallback(context.getOrder())) {
+                    throw RecoveryFailedException.FALLBACK_FAILED;
+                }
+                return Boolean.TRUE; // TRUE marks "hedge finished"
+            });
+        } catch (RejectedExecutionException e) {
+            await(primaryFuture);
+            return null;
+        }
+        context.addAttemptedRecovery(OrderContext.RecoveryStep.FALLBACK);
+
+        Exception primaryFailure = null;
+        for (int i = 0; i < 2; i++) {
+            Future<Boolean> done = race.take();
+            try {
+                boolean hedgeWon = done.get();
+                if (!hedgeWon) {
+                    hedgeFuture.cancel(true);
+                    return null;
+                }
+                primaryFuture.cancel(true);
+                // Wait for a running primary to stop before its step is handed to the fallback
+                if (!primaryState.compareAndSet(0, 2)) primaryStopped.await();
+                // The interrupted primary recorded itself as the failed service
+                context.removeMetadata(OrderContext.FAILED_SERVICE);
+                return fallbackUsed();
+            } catch (ExecutionException e) {
+                if (done == primaryFuture) primaryFailure = unwrap(e);
+                // Otherwise the hedge failed; keep waiting for the primary
+            }
+        }
+        throw primaryFailure != null ? primaryFailure : RecoveryFailedException.FALLBACK_FAILED;
+    }
+
+    private static void await(Future<Boolean> future) throws Exception {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private static Exception unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof Exception) return (Exception) cause;
+        throw (Error) cause;
+    }
 
-        throw new Exception("Fallback failed");
+    private static RecoveryResult fallbackUsed() {
+        return RecoveryResult.success(
+                "Used fallback service/cached data",
+                "FallbackHandler",
+                RecoveryResult.RecoveryAction.FALLBACK_USED
+        );
     }
 }
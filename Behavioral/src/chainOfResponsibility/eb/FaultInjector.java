@@ -0,0 +1,9 @@
+package chainOfResponsibility.eb;
+
+/**
+ * Hook invoked before every workflow step; throwing fails that step.
+ * Used by OrderLoadHarness to drive the error handler chain with realistic failure mixes.
+ */
+public interface FaultInjector {
+    void beforeStep(WorkflowStep step, OrderContext context) throws Exception;
+}
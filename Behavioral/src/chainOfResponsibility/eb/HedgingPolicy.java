@@ -0,0 +1,80 @@
+package chainOfResponsibility.eb;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Decides when FallbackHandler should hedge a slow primary call.
+ * Tracks recent primary latencies to derive the hedge delay (a percentile), and
+ * a token bucket so hedges never exceed a fixed share of total requests.
+ */
+public class HedgingPolicy {
+    private static final int WINDOW = 1024;
+    private static final int RECOMPUTE_EVERY = 64;
+    private static final long TOKEN = 1_000;
+
+    private final double percentile;
+    private final long defaultDelayMs;
+    private final long tokensPerRequest;
+    private final long maxTokens;
+
+    private final AtomicLongArray latencies = new AtomicLongArray(WINDOW);
+    private final AtomicLong samples = new AtomicLong();
+    private final AtomicLong tokens;
+    private volatile long hedgeDelayMs;
+
+    /**
+     * @param percentile     primary latency percentile that triggers a hedge, e.g. 0.95
+     * @param defaultDelayMs delay used until enough samples have been seen
+     * @param budgetRatio    max fraction of requests that may hedge, e.g. 0.05
+     * @param maxBurst       hedges that may be spent back to back after a quiet period
+     */
+    public HedgingPolicy(double percentile, long defaultDelayMs, double budgetRatio, int maxBurst) {
+        this.percentile = percentile;
+        this.defaultDelayMs = defaultDelayMs;
+        this.tokensPerRequest = (long) (budgetRatio * TOKEN);
+        this.maxTokens = maxBurst * TOKEN;
+        this.tokens = new AtomicLong(maxTokens);
+        this.hedgeDelayMs = defaultDelayMs;
+    }
+
+    long hedgeDelayMs() {
+        return hedgeDelayMs;
+    }
+
+    // Called once per primary request; earns a fraction of a hedge
+    void onRequest() {
+        tokens.getAndUpdate(t -> Math.min(maxTokens, t + tokensPerRequest));
+    }
+
+    boolean tryAcquireHedge() {
+        while (true) {
+            long current = tokens.get();
+            if (current < TOKEN) return false;
+            if (tokens.compareAndSet(current, current - TOKEN)) return true;
+        }
+    }
+
+    void recordPrimaryLatency(long latencyMs) {
+        long n = samples.getAndIncrement();
+        latencies.set((int) (n & (WINDOW - 1)), latencyMs);
+        if ((n + 1) % RECOMPUTE_EVERY == 0) {
+            recompute((int) Math.min(n + 1, WINDOW));
+        }
+    }
+
+    private void recompute(int count) {
+        long[] sorted = new long[count];
+        for (int i = 0; i < count; i++) sorted[i] = latencies.get(i);
+        Arrays.sort(sorted);
+        int index = (int) Math.min(count - 1, Math.ceil(percentile * count) - 1);
+        hedgeDelayMs = Math.max(1, sorted[Math.max(0, index)]);
+    }
+
+    @Override
+    public String toString() {
+        return "HedgingPolicy{p" + (int) (percentile * 100) + "=" + hedgeDelayMs +
+                "ms, default=" + defaultDelayMs + "ms}";
+    }
+}
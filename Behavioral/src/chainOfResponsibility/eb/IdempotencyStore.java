@@ -0,0 +1,100 @@
+package chainOfResponsibility.eb;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Bounded, time-expiring map of orderId -> in-flight or completed result.
+ * The lock only guards the map; callers wait on the future outside of it.
+ *
+ * Completed entries are also queued in completion order. With one TTL for all of them
+ * that is expiry order too, so expired results are dropped from the head of the queue on
+ * every call and eviction pops the oldest completed entry, both without scanning.
+ */
+class IdempotencyStore {
+    private final long ttlMs;
+    private final int maxEntries;
+    private final HashMap<String, Entry> entries = new HashMap<>();
+    // May hold entries already replaced or removed from the map; those are skipped
+    private final ArrayDeque<Entry> completed = new ArrayDeque<>();
+
+    IdempotencyStore(int maxEntries, long ttlMs) {
+        this.ttlMs = ttlMs;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the existing entry for this key, or registers {@code fresh} and returns null
+     * if the caller is the first (or the previous result has expired).
+     */
+    synchronized CompletableFuture<OrderResult> claim(String key, CompletableFuture<OrderResult> fresh) {
+        long now = System.currentTimeMillis();
+        expire(now);
+        Entry existing = entries.get(key);
+        if (existing != null && !existing.isExpired(now)) {
+            return existing.future;
+        }
+        entries.put(key, new Entry(key, fresh));
+        evict();
+        return null;
+    }
+
+    private void expire(long now) {
+        Entry head;
+        while ((head = completed.peekFirst()) != null && head.isExpired(now)) {
+            completed.pollFirst();
+            entries.remove(head.key, head);
+        }
+    }
+
+    /**
+     * Drops the oldest completed entries once over capacity. In-flight entries are never
+     * evicted, otherwise a duplicate arriving mid-flight would run the workflow again; the
+     * map can therefore exceed maxEntries by at most the number of orders in flight.
+     */
+    private void evict() {
+        while (entries.size() > maxEntries && !completed.isEmpty()) {
+            Entry oldest = completed.pollFirst();
+            entries.remove(oldest.key, oldest);
+        }
+    }
+
+    synchronized void complete(String key, CompletableFuture<OrderResult> future) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.future == future) {
+            long now = System.currentTimeMillis();
+            entry.expiresAt = now + ttlMs;
+            completed.addLast(entry);
+            expire(now);
+            evict();
+        }
+    }
+
+    synchronized void remove(String key, CompletableFuture<OrderResult> future) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.future == future) {
+            entries.remove(key);
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private static class Entry {
+        final String key;
+        final CompletableFuture<OrderResult> future;
+        // Long.MAX_VALUE while in flight; set once the result is known
+        long expiresAt = Long.MAX_VALUE;
+
+        Entry(String key, CompletableFuture<OrderResult> future) {
+            this.key = key;
+            this.future = future;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package chainOfResponsibility.eb;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Runs the order workflow at most once per orderId within the TTL.
+ * Concurrent duplicates block on the first submission's result instead of re-running it.
+ */
+public class IdempotentOrderService {
+    private final OrderService orderService;
+    private final IdempotencyStore store;
+
+    public IdempotentOrderService(OrderService orderService, int maxEntries, long ttlMs) {
+        this.orderService = orderService;
+        this.store = new IdempotencyStore(maxEntries, ttlMs);
+    }
+
+    public OrderResult processOrder(Order order) {
+        String key = order.getOrderId();
+        CompletableFuture<OrderResult> mine = new CompletableFuture<>();
+        CompletableFuture<OrderResult> existing = store.claim(key, mine);
+
+        if (existing != null) {
+            return await(key, existing);
+        }
+
+        try {
+            OrderResult result = orderService.processOrder(order);
+            store.complete(key, mine);
+            mine.complete(result);
+            return result;
+        } catch (Throwable t) {
+            // Unexpected crash (including Errors): don't cache it, let the next retry run the
+            // workflow again, and never leave duplicates waiting on an incomplete future
+            store.remove(key, mine);
+            mine.completeExceptionally(t);
+            throw t;
+        }
+    }
+
+    private OrderResult await(String orderId, CompletableFuture<OrderResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return OrderResult.failed(orderId, "Interrupted while waiting for duplicate submission");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+}
@@ -4,4 +4,13 @@ public class InsufficientInventoryException extends Exception {
     public InsufficientInventoryException(String productId) {
         super("Insufficient inventory for product: " + productId);
     }
+
+    private InsufficientInventoryException(String productId, boolean writableStackTrace) {
+        super("Insufficient inventory for product: " + productId, null, false, writableStackTrace);
+    }
+
+    // Product IDs are unbounded, so this is not cached; it only skips the stack walk
+    public static InsufficientInventoryException stackless(String productId) {
+        return new InsufficientInventoryException(productId, false);
+    }
 }
@@ -0,0 +1,116 @@
+package chainOfResponsibility.eb;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+/**
+ * Fixed-point amount: a long count of minor units plus the currency scale
+ * (2 for cents). All arithmetic is exact and throws ArithmeticException on overflow;
+ * BigDecimal is only used when converting at the edges.
+ */
+public final class Money implements Comparable<Money> {
+    public static final int DEFAULT_SCALE = 2;
+
+    private final long minorUnits;
+    private final int scale;
+
+    private Money(long minorUnits, int scale) {
+        this.minorUnits = minorUnits;
+        this.scale = scale;
+    }
+
+    public static Money ofMinor(long minorUnits, int scale) {
+        checkScale(scale);
+        return new Money(minorUnits, scale);
+    }
+
+    static void checkScale(int scale) {
+        if (scale < 0 || scale > 18) {
+            throw new IllegalArgumentException("Unsupported scale: " + scale);
+        }
+    }
+
+    /**
+     * @throws ArithmeticException if the amount has more decimals than the scale
+     *                             or does not fit into a long
+     */
+    public static Money of(BigDecimal amount, int scale) {
+        return ofMinor(toMinor(amount, scale), scale);
+    }
+
+    static long toMinor(BigDecimal amount, int scale) {
+        return amount.setScale(scale, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    public Money plus(Money other) {
+        requireSameScale(other.scale);
+        return new Money(Math.addExact(minorUnits, other.minorUnits), scale);
+    }
+
+    public Money minus(Money other) {
+        requireSameScale(other.scale);
+        return new Money(Math.subtractExact(minorUnits, other.minorUnits), scale);
+    }
+
+    public Money times(long quantity) {
+        return new Money(Math.multiplyExact(minorUnits, quantity), scale);
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, scale);
+    }
+
+    public long getMinorUnits() { return minorUnits; }
+    public int getScale() { return scale; }
+
+    /**
+     * Sum of price * quantity over the items, in minor units. Reads only primitive
+     * fields and allocates nothing, so it is safe to call on large carts in a loop.
+     */
+    public static long totalMinor(List<OrderItem> items, int scale) {
+        long total = 0;
+        for (int i = 0, n = items.size(); i < n; i++) {
+            OrderItem item = items.get(i);
+            if (item.getPriceScale() != scale) {
+                throw new ArithmeticException("Scale mismatch: " + item.getPriceScale() + " vs " + scale);
+            }
+            total = Math.addExact(total, Math.multiplyExact(item.getPriceMinor(), item.getQuantity()));
+        }
+        return total;
+    }
+
+    public static Money total(List<OrderItem> items, int scale) {
+        return new Money(totalMinor(items, scale), scale);
+    }
+
+    private void requireSameScale(int otherScale) {
+        if (scale != otherScale) {
+            throw new ArithmeticException("Scale mismatch: " + scale + " vs " + otherScale);
+        }
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        requireSameScale(other.scale);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Money)) return false;
+        Money money = (Money) o;
+        return minorUnits == money.minorUnits && scale == money.scale;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(minorUnits) + scale;
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
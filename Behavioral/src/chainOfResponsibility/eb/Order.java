@@ -23,6 +23,8 @@ public class Order {
     public String getOrderId() { return orderId; }
     public List<OrderItem> getItems() { return items; }
     public BigDecimal getTotalAmount() { return totalAmount; }
+    // Recomputed from the items in fixed point; compare against getTotalAmount() at the edge
+    public Money computeTotal(int scale) { return Money.total(items, scale); }
     public OrderStatus getStatus() { return status; }
     public void setStatus(OrderStatus status) { this.status = status; }
 }
@@ -1,32 +1,83 @@
 package chainOfResponsibility.eb;
 
-import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class OrderContext {
+    public static final String FAILED_SERVICE = "failedService";
+
     private final String orderId;
     private final Order order;
     private int retryCount;
-    private final List<String> attemptedRecoveries;
-    private final Map<String, Object> metadata;
+    // Bitset over RecoveryStep ordinals; avoids a list per order
+    private int attemptedRecoveries;
+    // Bitset over WorkflowStep ordinals; the checkpoint that recovery resumes from.
+    // Atomic because a hedged primary marks steps while the caller thread reads them
+    private final AtomicInteger completedSteps = new AtomicInteger();
+    // Only allocated once something is stored, i.e. on the failure path
+    private Map<String, Object> metadata;
+    // Where recovery handlers resume this order; null means run the steps inline
+    private volatile OrderWorkflow resumeVia;
+
+    public enum RecoveryStep {
+        RETRY, FALLBACK, COMPENSATION, ESCALATION
+    }
 
     public OrderContext(String orderId, Order order) {
         this.orderId = orderId;
         this.order = order;
-        this.retryCount = 0;
-        this.attemptedRecoveries = new ArrayList<>();
-        this.metadata = new HashMap<>();
     }
 
     public void incrementRetryCount() { retryCount++; }
     public int getRetryCount() { return retryCount; }
-    public void addAttemptedRecovery(String recovery) {
-        attemptedRecoveries.add(recovery);
+    public void addAttemptedRecovery(RecoveryStep recovery) {
+        attemptedRecoveries |= 1 << recovery.ordinal();
+    }
+    public boolean hasAttempted(RecoveryStep recovery) {
+        return (attemptedRecoveries & (1 << recovery.ordinal())) != 0;
+    }
+    public EnumSet<RecoveryStep> getAttemptedRecoveries() {
+        EnumSet<RecoveryStep> steps = EnumSet.noneOf(RecoveryStep.class);
+        for (RecoveryStep step : RecoveryStep.values()) {
+            if (hasAttempted(step)) steps.add(step);
+        }
+        return steps;
+    }
+    public void markStepCompleted(WorkflowStep step) {
+        int bit = 1 << step.ordinal();
+        completedSteps.getAndUpdate(bits -> bits | bit);
     }
+    public boolean isStepCompleted(WorkflowStep step) {
+        return (completedSteps.get() & (1 << step.ordinal())) != 0;
+    }
+    public EnumSet<WorkflowStep> getCompletedSteps() {
+        EnumSet<WorkflowStep> steps = EnumSet.noneOf(WorkflowStep.class);
+        for (WorkflowStep step : WorkflowStep.values()) {
+            if (isStepCompleted(step)) steps.add(step);
+        }
+        return steps;
+    }
+    // Null once every step has completed
+    public WorkflowStep getFirstUnfinishedStep() {
+        for (WorkflowStep step : WorkflowStep.values()) {
+            if (!isStepCompleted(step)) return step;
+        }
+        return null;
+    }
+    void setResumeVia(OrderWorkflow workflow) { this.resumeVia = workflow; }
+    OrderWorkflow getResumeVia() { return resumeVia; }
     public Order getOrder() { return order; }
     public String getOrderId() { return orderId; }
-    public void putMetadata(String key, Object value) { metadata.put(key, value); }
-    public Object getMetadata(String key) { return metadata.get(key); }
+    public void putMetadata(String key, Object value) {
+        if (metadata == null) metadata = new HashMap<>(4);
+        metadata.put(key, value);
+    }
+    public void removeMetadata(String key) {
+        if (metadata != null) metadata.remove(key);
+    }
+    public Object getMetadata(String key) {
+        return metadata == null ? null : metadata.get(key);
+    }
 }
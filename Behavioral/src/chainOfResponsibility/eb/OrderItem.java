@@ -6,13 +6,38 @@ public class OrderItem {
     private final String productId;
     private final int quantity;
     private final BigDecimal price;
+    // Fixed-point copy of price, used by Money.totalMinor on the hot path
+    private final long priceMinor;
+    private final int priceScale;
 
+    /**
+     * Uses the default scale. A price with more decimals (e.g. 0.125) is never rounded:
+     * pass a larger priceScale for it instead.
+     *
+     * @throws ArithmeticException if the price has more decimals than the default scale
+     */
     public OrderItem(String productId, int quantity, BigDecimal price) {
+        this(productId, quantity, price, Money.DEFAULT_SCALE);
+    }
+
+    /**
+     * @throws IllegalArgumentException if priceScale is outside 0..18
+     * @throws ArithmeticException      if the price has more decimals than priceScale
+     */
+    public OrderItem(String productId, int quantity, BigDecimal price, int priceScale) {
+        Money.checkScale(priceScale);
         this.productId = productId;
         this.quantity = quantity;
         this.price = price;
+        this.priceScale = priceScale;
+        this.priceMinor = Money.toMinor(price, priceScale);
     }
 
     public String getProductId() { return productId; }
     public int getQuantity() { return quantity; }
+    public BigDecimal getPrice() { return price; }
+    public long getPriceMinor() { return priceMinor; }
+    public int getPriceScale() { return priceScale; }
+    public Money getUnitPrice() { return Money.ofMinor(priceMinor, priceScale); }
+    public Money getLineTotal() { return getUnitPrice().times(quantity); }
 }
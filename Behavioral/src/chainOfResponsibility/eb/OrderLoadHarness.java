@@ -0,0 +1,260 @@
+package chainOfResponsibility.eb;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives OrderService with a configurable failure mix and reports throughput,
+ * latency percentiles and how outcomes split across RecoveryAction values.
+ */
+public class OrderLoadHarness {
+    private static final String NO_RECOVERY = "NONE";
+    private static final String FAILED = "FAILED";
+
+    private final int orders;
+    private final int concurrency;
+    private final double timeoutRate;
+    private final double serviceUnavailableRate;
+    private final double paymentFailedRate;
+    private final double insufficientInventoryRate;
+    private final long fallbackLatencyMs;
+    private final long compensationLatencyMs;
+
+    private OrderLoadHarness(Builder builder) {
+        this.orders = builder.orders;
+        this.concurrency = builder.concurrency;
+        this.timeoutRate = builder.timeoutRate;
+        this.serviceUnavailableRate = builder.serviceUnavailableRate;
+        this.paymentFailedRate = builder.paymentFailedRate;
+        this.insufficientInventoryRate = builder.insufficientInventoryRate;
+        this.fallbackLatencyMs = builder.fallbackLatencyMs;
+        this.compensationLatencyMs = builder.compensationLatencyMs;
+    }
+
+    public Report run() throws InterruptedException {
+        FallbackService fallbackService = order -> {
+            sleep(fallbackLatencyMs);
+            return true;
+        };
+        CompensationService compensationService = new CompensationService() {
+            public void compensate(Order order) {
+                sleep(compensationLatencyMs);
+            }
+            public void logForReview(String orderId, String reason) {
+            }
+        };
+        LongAdder pages = new LongAdder();
+        AggregatingAlertingService alertingService =
+                new AggregatingAlertingService((title, msg) -> pages.increment(), 1000, 5);
+
+        OrderService orderService = new OrderService(fallbackService,
+                compensationService,
+                alertingService);
+        orderService.setFaultInjector(this::injectFault);
+
+        long[] latencies = new long[orders];
+        Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        List<OrderItem> items = List.of(new OrderItem("load-prod", 1, new BigDecimal("10.00")));
+
+        long start = System.nanoTime();
+        for (int i = 0; i < orders; i++) {
+            final int index = i;
+            pool.execute(() -> {
+                Order order = new Order("load-" + index, items, new BigDecimal("10.00"));
+                long t0 = System.nanoTime();
+                OrderResult result = orderService.processOrder(order);
+                latencies[index] = System.nanoTime() - t0;
+                outcomes.computeIfAbsent(outcome(result), k -> new LongAdder()).increment();
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.HOURS);
+        long elapsedNanos = System.nanoTime() - start;
+        alertingService.close();
+
+        Arrays.sort(latencies);
+        Map<String, Long> split = new LinkedHashMap<>();
+        split.put(NO_RECOVERY, count(outcomes, NO_RECOVERY));
+        for (RecoveryResult.RecoveryAction action : RecoveryResult.RecoveryAction.values()) {
+            split.put(action.name(), count(outcomes, action.name()));
+        }
+        return new Report(orders, elapsedNanos, latencies, split, pages.sum(),
+                orderService.getMetricsSnapshot());
+    }
+
+    private void injectFault(WorkflowStep step, OrderContext context) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (step) {
+            case INVENTORY:
+                if (random.nextDouble() < timeoutRate) {
+                    throw TimeoutException.stackless(step);
+                }
+                if (random.nextDouble() < insufficientInventoryRate) {
+                    throw InsufficientInventoryException.stackless("load-prod");
+                }
+                break;
+            case PAYMENT:
+                if (random.nextDouble() < serviceUnavailableRate) {
+                    throw ServiceUnavailableException.stackless(step);
+                }
+                if (random.nextDouble() < paymentFailedRate) {
+                    throw PaymentFailedException.INSUFFICIENT_FUNDS;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static String outcome(OrderResult result) {
+        if (result.getRecovery() != null) return result.getRecovery().getActionTaken().name();
+        return result.isSuccess() ? NO_RECOVERY : FAILED;
+    }
+
+    private static long count(Map<String, LongAdder> outcomes, String key) {
+        LongAdder adder = outcomes.get(key);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    private static void sleep(long ms) {
+        if (ms <= 0) return;
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static class Report {
+        private final int orders;
+        private final long elapsedNanos;
+        private final long[] sortedLatencies;
+        private final Map<String, Long> outcomes;
+        private final long alertsSent;
+        private final RecoveryMetrics.Snapshot metrics;
+
+        Report(int orders, long elapsedNanos, long[] sortedLatencies,
+               Map<String, Long> outcomes, long alertsSent, RecoveryMetrics.Snapshot metrics) {
+            this.orders = orders;
+            this.elapsedNanos = elapsedNanos;
+            this.sortedLatencies = sortedLatencies;
+            this.outcomes = outcomes;
+            this.alertsSent = alertsSent;
+            this.metrics = metrics;
+        }
+
+        public double getThroughputPerSecond() {
+            return orders / (elapsedNanos / 1e9);
+        }
+
+        public long getLatencyPercentileMicros(double quantile) {
+            if (sortedLatencies.length == 0) return 0;
+            int index = (int) Math.ceil(quantile * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, Math.min(index, sortedLatencies.length - 1))] / 1_000;
+        }
+
+        public Map<String, Long> getOutcomes() { return outcomes; }
+        public long getAlertsSent() { return alertsSent; }
+        public RecoveryMetrics.Snapshot getMetrics() { return metrics; }
+
+        @Override
+        public String toString() {
+            return String.format("orders=%d, throughput=%.1f/s, p50=%dus, p90=%dus, p99=%dus, max=%dus%n" +
+                            "outcomes=%s%nalerts sent=%d%nchain=%s",
+                    orders, getThroughputPerSecond(),
+                    getLatencyPercentileMicros(0.50), getLatencyPercentileMicros(0.90),
+                    getLatencyPercentileMicros(0.99), getLatencyPercentileMicros(1.0),
+                    outcomes, alertsSent, metrics);
+        }
+    }
+
+    public static class Builder {
+        private int orders = 1_000;
+        private int concurrency = 16;
+        private double timeoutRate;
+        private double serviceUnavailableRate;
+        private double paymentFailedRate;
+        private double insufficientInventoryRate;
+        private long fallbackLatencyMs;
+        private long compensationLatencyMs;
+
+        public Builder withOrders(int orders) {
+            if (orders <= 0) throw new IllegalArgumentException("Orders must be positive");
+            this.orders = orders;
+            return this;
+        }
+
+        public Builder withConcurrency(int threads) {
+            if (threads <= 0) throw new IllegalArgumentException("Concurrency must be positive");
+            this.concurrency = threads;
+            return this;
+        }
+
+        public Builder withTimeoutRate(double rate) {
+            this.timeoutRate = checkRate(rate);
+            return this;
+        }
+
+        public Builder withServiceUnavailableRate(double rate) {
+            this.serviceUnavailableRate = checkRate(rate);
+            return this;
+        }
+
+        public Builder withPaymentFailedRate(double rate) {
+            this.paymentFailedRate = checkRate(rate);
+            return this;
+        }
+
+        public Builder withInsufficientInventoryRate(double rate) {
+            this.insufficientInventoryRate = checkRate(rate);
+            return this;
+        }
+
+        public Builder withFallbackLatency(long ms) {
+            this.fallbackLatencyMs = ms;
+            return this;
+        }
+
+        public Builder withCompensationLatency(long ms) {
+            this.compensationLatencyMs = ms;
+            return this;
+        }
+
+        public OrderLoadHarness build() {
+            return new OrderLoadHarness(this);
+        }
+
+        private static double checkRate(double rate) {
+            if (rate < 0 || rate > 1) throw new IllegalArgumentException("Rate must be in [0, 1]");
+            return rate;
+        }
+    }
+
+    // --- MAIN DRIVER ---
+    public static void main(String[] args) throws InterruptedException {
+        Report report = new Builder()
+                .withOrders(2_000)
+                .withConcurrency(32)
+                .withTimeoutRate(0.02)
+                .withServiceUnavailableRate(0.05)
+                .withPaymentFailedRate(0.01)
+                .withInsufficientInventoryRate(0.01)
+                .withFallbackLatency(20)
+                .withCompensationLatency(50)
+                .build()
+                .run();
+
+        System.out.println(report);
+    }
+}
@@ -0,0 +1,302 @@
+package chainOfResponsibility.eb;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs the order workflow as one bounded stage per WorkflowStep.
+ * Each stage owns a fixed queue and worker threads. A full downstream queue blocks the
+ * upstream workers, which in turn fills the upstream queue and finally blocks submit().
+ * A failing step hands the order to OrderService's error handler chain, which runs on
+ * separate recovery threads so retry backoff does not stall a stage. When a handler resumes
+ * the workflow, the remaining steps go back through the stage queues.
+ *
+ * The recovery backlog is bounded too. When it is full, the failing stage's worker runs
+ * the recovery itself, which stalls that stage and so pushes back on submit() during an
+ * outage. Such a caller-run recovery resumes the remaining steps inline instead of through
+ * the stage queues: a stage thread waiting on stage queues (possibly its own) could
+ * deadlock. Recovery threads may block on a full stage queue, but stage threads never wait
+ * for recovery threads, so there is no cycle.
+ */
+public class OrderPipeline implements AutoCloseable, OrderWorkflow {
+    private static final int DEFAULT_RECOVERY_THREADS = 2;
+    private static final int DEFAULT_RECOVERY_BACKLOG = 64;
+
+    private final OrderService orderService;
+    private final Map<WorkflowStep, Stage> stages = new EnumMap<>(WorkflowStep.class);
+    private final List<Thread> workers = new ArrayList<>();
+    private final ThreadPoolExecutor recoveryExecutor;
+    private final Set<Task> inFlight = ConcurrentHashMap.newKeySet();
+    private volatile boolean running = true;
+
+    public static class StageConfig {
+        private final int threads;
+        private final int queueCapacity;
+
+        public StageConfig(int threads, int queueCapacity) {
+            this.threads = threads;
+            this.queueCapacity = queueCapacity;
+        }
+    }
+
+    public OrderPipeline(OrderService orderService, Map<WorkflowStep, StageConfig> configs) {
+        this(orderService, configs, DEFAULT_RECOVERY_THREADS, DEFAULT_RECOVERY_BACKLOG);
+    }
+
+    public OrderPipeline(OrderService orderService, Map<WorkflowStep, StageConfig> configs,
+                         int recoveryThreads, int recoveryBacklog) {
+        this.orderService = orderService;
+        AtomicInteger recoveryIds = new AtomicInteger();
+        // Default AbortPolicy: a full backlog is handled in recover() by running on the stage
+        this.recoveryExecutor = new ThreadPoolExecutor(recoveryThreads, recoveryThreads,
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(recoveryBacklog), r -> {
+            Thread t = new Thread(r, "order-recovery-" + recoveryIds.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+
+        for (WorkflowStep step : WorkflowStep.values()) {
+            StageConfig config = configs.get(step);
+            if (config == null) {
+                throw new IllegalArgumentException("Missing stage config for " + step);
+            }
+            Stage stage = new Stage(step, config.queueCapacity);
+            stages.put(step, stage);
+
+            for (int i = 0; i < config.threads; i++) {
+                Thread t = new Thread(() -> runStage(stage),
+                        "order-" + step.name().toLowerCase() + "-" + i);
+                t.setDaemon(true);
+                workers.add(t);
+            }
+        }
+        workers.forEach(Thread::start);
+    }
+
+    /**
+     * Enqueues the order at the first stage. Blocks while that stage is full.
+     */
+    public CompletableFuture<OrderResult> submit(Order order) throws InterruptedException {
+        if (!running) throw new IllegalStateException("Pipeline is shut down");
+        order.setStatus(Order.OrderStatus.PROCESSING);
+        OrderContext context = new OrderContext(order.getOrderId(), order);
+        context.setResumeVia(this);
+        Task task = new Task(context, new CompletableFuture<>(), null);
+        inFlight.add(task);
+        task.result.whenComplete((result, error) -> inFlight.remove(task));
+        // close() sets running before it fails inFlight, so re-checking after the add
+        // means either close() or this check fails the task
+        if (running) stages.get(WorkflowStep.values()[0]).put(task);
+        if (!running) task.fail(new CancellationException("Pipeline is shut down"));
+        return task.result;
+    }
+
+    /**
+     * Called by recovery handlers (on a recovery thread): sends the unfinished steps back
+     * through their stages and waits for them. A failing step is rethrown to the handler
+     * rather than starting a nested recovery.
+     */
+    @Override
+    public void resume(OrderContext context) throws Exception {
+        WorkflowStep first = context.getFirstUnfinishedStep();
+        if (first == null) return;
+        if (!running) throw new IllegalStateException("Pipeline is shut down");
+
+        Task continuation = new Task(context, null, new CompletableFuture<>());
+        stages.get(first).put(continuation);
+        try {
+            continuation.resumed.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            throw (Error) cause;
+        }
+    }
+
+    public Map<WorkflowStep, StageStats> getStageStats() {
+        Map<WorkflowStep, StageStats> stats = new EnumMap<>(WorkflowStep.class);
+        stages.forEach((step, stage) -> stats.put(step, stage.stats()));
+        return stats;
+    }
+
+    private void runStage(Stage stage) {
+        WorkflowStep[] steps = WorkflowStep.values();
+
+        while (running) {
+            Task task;
+            try {
+                task = stage.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            try {
+                orderService.executeStep(stage.step, task.context);
+            } catch (InterruptedException e) {
+                // Shutdown, not an order failure
+                task.fail(e);
+                return;
+            } catch (Exception e) {
+                if (task.resumed != null) {
+                    task.resumed.completeExceptionally(e);
+                } else {
+                    recover(task, e);
+                }
+                continue;
+            }
+
+            int nextIndex = stage.step.ordinal() + 1;
+            while (nextIndex < steps.length && task.context.isStepCompleted(steps[nextIndex])) nextIndex++;
+            if (nextIndex == steps.length) {
+                if (task.resumed != null) task.resumed.complete(null);
+                else task.result.complete(orderService.completed(task.context));
+                continue;
+            }
+
+            try {
+                // Blocking hand-off is the backpressure: a slow next stage stalls this one
+                stages.get(steps[nextIndex]).put(task);
+            } catch (InterruptedException e) {
+                task.fail(e);
+                return;
+            }
+        }
+    }
+
+    private void recover(Task task, Exception e) {
+        try {
+            recoveryExecutor.execute(() -> task.result.complete(orderService.recover(e, task.context)));
+        } catch (RejectedExecutionException rejected) {
+            if (recoveryExecutor.isShutdown()) {
+                task.fail(new CancellationException("Pipeline is shut down"));
+                return;
+            }
+            // Backlog full: recover on this stage thread, resuming inline (see class comment)
+            task.context.setResumeVia(null);
+            task.result.complete(orderService.recover(e, task.context));
+        }
+    }
+
+    /**
+     * Stops the stages and recovery threads. Every order that has not finished, whether
+     * queued, running or recovering, completes exceptionally with CancellationException.
+     */
+    @Override
+    public void close() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        recoveryExecutor.shutdownNow();
+        for (Thread worker : workers) {
+            try {
+                worker.join(1_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        CancellationException closed = new CancellationException("Pipeline is shut down");
+        List<Task> abandoned = new ArrayList<>();
+        for (Stage stage : stages.values()) stage.queue.drainTo(abandoned);
+        abandoned.forEach(task -> task.fail(closed));
+        inFlight.forEach(task -> task.fail(closed));
+    }
+
+    // Either a submitted order (result) or a handler's resume of one (resumed)
+    private static class Task {
+        final OrderContext context;
+        final CompletableFuture<OrderResult> result;
+        final CompletableFuture<Void> resumed;
+        long enqueuedAt;
+
+        Task(OrderContext context, CompletableFuture<OrderResult> result, CompletableFuture<Void> resumed) {
+            this.context = context;
+            this.result = result;
+            this.resumed = resumed;
+        }
+
+        void fail(Throwable error) {
+            if (resumed != null) resumed.completeExceptionally(error);
+            else result.completeExceptionally(error);
+        }
+    }
+
+    private static class Stage {
+        final WorkflowStep step;
+        final BlockingQueue<Task> queue;
+        final LongAdder processed = new LongAdder();
+        final LongAdder totalWaitNanos = new LongAdder();
+        final AtomicLong maxWaitNanos = new AtomicLong();
+
+        Stage(WorkflowStep step, int capacity) {
+            this.step = step;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        void put(Task task) throws InterruptedException {
+            task.enqueuedAt = System.nanoTime();
+            queue.put(task);
+        }
+
+        Task take() throws InterruptedException {
+            Task task = queue.take();
+            long waited = System.nanoTime() - task.enqueuedAt;
+            processed.increment();
+            totalWaitNanos.add(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+            return task;
+        }
+
+        StageStats stats() {
+            return new StageStats(queue.size(), queue.remainingCapacity(),
+                    processed.sum(), totalWaitNanos.sum(), maxWaitNanos.get());
+        }
+    }
+
+    public static class StageStats {
+        private final int depth;
+        private final int remainingCapacity;
+        private final long processed;
+        private final long totalWaitNanos;
+        private final long maxWaitNanos;
+
+        StageStats(int depth, int remainingCapacity, long processed,
+                   long totalWaitNanos, long maxWaitNanos) {
+            this.depth = depth;
+            this.remainingCapacity = remainingCapacity;
+            this.processed = processed;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+        }
+
+        public int getDepth() { return depth; }
+        public int getRemainingCapacity() { return remainingCapacity; }
+        public long getProcessed() { return processed; }
+        public long getAverageWaitMicros() {
+            return processed == 0 ? 0 : totalWaitNanos / processed / 1_000;
+        }
+        public long getMaxWaitMicros() { return maxWaitNanos / 1_000; }
+
+        @Override
+        public String toString() {
+            return "depth=" + depth + ", processed=" + processed +
+                    ", avgWait=" + getAverageWaitMicros() + "us" +
+                    ", maxWait=" + getMaxWaitMicros() + "us";
+        }
+    }
+}
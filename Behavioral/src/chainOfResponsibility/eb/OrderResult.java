@@ -29,4 +29,7 @@ public class OrderResult {
 
     public boolean isSuccess() { return success; }
     public String getMessage() { return message; }
+    public String getOrderId() { return orderId; }
+    // Null when the order succeeded without recovery or failed outright
+    public RecoveryResult getRecovery() { return recovery; }
 }
@@ -1,58 +1,167 @@
 package chainOfResponsibility.eb;
 
-public class OrderService {
+public class OrderService implements OrderWorkflow {
     private final ErrorHandler errorHandlerChain;
+    private final FallbackHandler fallbackHandler;
+    private final RecoveryMetrics metrics = new RecoveryMetrics();
+    private volatile FaultInjector faultInjector;
 
     public OrderService(FallbackService fallbackService,
                         CompensationService compensationService,
                         AlertingService alertingService) {
+        this(fallbackService, compensationService, alertingService, null);
+    }
+
+    // A non-null hedgingPolicy races the fallback against slow primaries
+    public OrderService(FallbackService fallbackService,
+                        CompensationService compensationService,
+                        AlertingService alertingService,
+                        HedgingPolicy hedgingPolicy) {
+        this(fallbackService, compensationService, alertingService, hedgingPolicy, null);
+    }
+
+    // A non-null deadLetterStore keeps escalated orders for later replay
+    public OrderService(FallbackService fallbackService,
+                        CompensationService compensationService,
+                        AlertingService alertingService,
+                        HedgingPolicy hedgingPolicy,
+                        DeadLetterStore deadLetterStore) {
 
         // Build error handler chain
-        ErrorHandler retry = new RetryableErrorHandler();
-        ErrorHandler fallback = new FallbackHandler(fallbackService);
-        ErrorHandler compensation = new CompensationHandler(compensationService);
-        ErrorHandler escalation = new EscalationHandler(alertingService);
+        AbstractErrorHandler retry = new RetryableErrorHandler(this);
+        FallbackHandler fallback = new FallbackHandler(fallbackService, this, hedgingPolicy);
+        AbstractErrorHandler compensation = new CompensationHandler(compensationService);
+        AbstractErrorHandler escalation = new EscalationHandler(alertingService, deadLetterStore);
+
+        retry.setMetrics(metrics);
+        fallback.setMetrics(metrics);
+        compensation.setMetrics(metrics);
+        escalation.setMetrics(metrics);
 
         retry.setNext(fallback)
                 .setNext(compensation)
                 .setNext(escalation);
 
         this.errorHandlerChain = retry;
+        this.fallbackHandler = fallback;
     }
 
     public OrderResult processOrder(Order order) {
         OrderContext context = new OrderContext(order.getOrderId(), order);
 
         try {
-            // Simulate order processing
-            executeOrderWorkflow(order);
-            return OrderResult.success(order.getOrderId());
-
-        } catch (Exception e) {
-            // Handle error through chain
-            RecoveryResult recovery = errorHandlerChain.handle(e, context);
-
-            if (recovery.isRecovered()) {
-                return OrderResult.recovered(order.getOrderId(), recovery);
+            if (fallbackHandler.isHedging()) {
+                // Hedge one step at a time: a winning fallback stands in for that step and
+                // the rest of the workflow still runs
+                long start = System.nanoTime();
+                RecoveryResult hedged = null;
+                for (WorkflowStep step : WorkflowStep.values()) {
+                    if (context.isStepCompleted(step)) continue;
+                    if (context.hasAttempted(OrderContext.RecoveryStep.FALLBACK)) {
+                        executeStep(step, context);
+                        continue;
+                    }
+                    RecoveryResult result = fallbackHandler.executeHedged(() -> {
+                        executeStep(step, context);
+                        return null;
+                    }, context);
+                    if (result != null) {
+                        context.markStepCompleted(step);
+                        hedged = result;
+                    }
+                }
+                if (hedged != null) {
+                    metrics.recordRecovery(hedged, context, System.nanoTime() - start);
+                    return OrderResult.recovered(order.getOrderId(), hedged);
+                }
             } else {
-                return OrderResult.failed(order.getOrderId(), recovery.getMessage());
+                // Simulate order processing
+                resume(context);
             }
+            return completed(context);
+
+        } catch (Exception e) {
+            return recover(e, context);
         }
     }
 
-    private void executeOrderWorkflow(Order order) throws Exception {
-        // Simulate failures
-        if (order.getOrderId().contains("timeout")) {
-            throw new TimeoutException("inventory-service");
+    OrderResult completed(OrderContext context) {
+        context.getOrder().setStatus(Order.OrderStatus.COMPLETED);
+        metrics.recordSuccess();
+        return OrderResult.success(context.getOrderId());
+    }
+
+    OrderResult recover(Exception e, OrderContext context) {
+        metrics.recordException(e);
+
+        // Handle error through chain
+        long start = System.nanoTime();
+        RecoveryResult recovery = errorHandlerChain.handle(e, context);
+        metrics.recordRecovery(recovery, context, System.nanoTime() - start);
+
+        if (recovery.isRecovered()) {
+            return OrderResult.recovered(context.getOrderId(), recovery);
+        } else {
+            return OrderResult.failed(context.getOrderId(), recovery.getMessage());
         }
-        if (order.getOrderId().contains("unavailable")) {
-            throw new ServiceUnavailableException("payment-service");
+    }
+
+    void setFaultInjector(FaultInjector faultInjector) {
+        this.faultInjector = faultInjector;
+    }
+
+    public RecoveryMetrics.Snapshot getMetricsSnapshot() {
+        return metrics.snapshot();
+    }
+
+    @Override
+    public void resume(OrderContext context) throws Exception {
+        // Orders owned by a pipeline resume through its stages
+        OrderWorkflow via = context.getResumeVia();
+        if (via != null) {
+            via.resume(context);
+            return;
         }
-        if (order.getOrderId().contains("payment-fail")) {
-            throw new PaymentFailedException("Insufficient funds");
+        for (WorkflowStep step : WorkflowStep.values()) {
+            if (!context.isStepCompleted(step)) {
+                executeStep(step, context);
+            }
         }
+    }
+
+    void executeStep(WorkflowStep step, OrderContext context) throws Exception {
+        String orderId = context.getOrderId();
+        FaultInjector injector = faultInjector;
+        try {
+            if (injector != null) {
+                injector.beforeStep(step, context);
+            }
 
-        // Success case
-        order.setStatus(Order.OrderStatus.COMPLETED);
+            // Simulate failures; expected business failures use stackless instances
+            switch (step) {
+                case INVENTORY:
+                    if (orderId.contains("timeout")) {
+                        throw TimeoutException.stackless(step);
+                    }
+                    break;
+                case PAYMENT:
+                    if (orderId.contains("slow")) {
+                        Thread.sleep(300); // Degraded but not failing dependency
+                    }
+                    if (orderId.contains("unavailable")) {
+                        throw ServiceUnavailableException.stackless(step);
+                    }
+                    if (orderId.contains("payment-fail")) {
+                        throw PaymentFailedException.INSUFFICIENT_FUNDS;
+                    }
+                    break;
+                case SHIPPING:
+                    break;
+            }
+            context.markStepCompleted(step);
+        } catch (Exception e) {
+            context.putMetadata(OrderContext.FAILED_SERVICE, step.getService());
+            throw e;
+        }
     }
 }
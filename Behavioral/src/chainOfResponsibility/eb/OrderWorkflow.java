@@ -0,0 +1,9 @@
+package chainOfResponsibility.eb;
+
+/**
+ * Re-entry point for recovery handlers: runs only the steps the context has not
+ * checkpointed as completed yet.
+ */
+public interface OrderWorkflow {
+    void resume(OrderContext context) throws Exception;
+}
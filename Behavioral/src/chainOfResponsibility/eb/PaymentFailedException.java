@@ -1,7 +1,15 @@
 package chainOfResponsibility.eb;
 
 public class PaymentFailedException extends Exception {
+    // Preallocated, stackless instance for the expected decline path
+    public static final PaymentFailedException INSUFFICIENT_FUNDS =
+            new PaymentFailedException("Insufficient funds", false);
+
     public PaymentFailedException(String reason) {
         super("Payment failed: " + reason);
     }
+
+    private PaymentFailedException(String reason, boolean writableStackTrace) {
+        super("Payment failed: " + reason, null, false, writableStackTrace);
+    }
 }
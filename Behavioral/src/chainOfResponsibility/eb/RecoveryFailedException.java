@@ -0,0 +1,33 @@
+package chainOfResponsibility.eb;
+
+/**
+ * Signals a handler gave up so AbstractErrorHandler moves on to the next one.
+ * Pure control flow: shared, stackless instances so the failure path allocates nothing.
+ * When the attempt itself failed differently (e.g. a resumed step threw), superseded()
+ * carries that newer failure, and the next handler sees it instead of the original.
+ */
+class RecoveryFailedException extends Exception {
+    static final RecoveryFailedException MAX_RETRIES_EXCEEDED =
+            new RecoveryFailedException("Max retries exceeded");
+    static final RecoveryFailedException RETRY_FAILED =
+            new RecoveryFailedException("Retry failed");
+    static final RecoveryFailedException FALLBACK_FAILED =
+            new RecoveryFailedException("Fallback failed");
+
+    private RecoveryFailedException(String message) {
+        super(message, null, false, false);
+    }
+
+    private RecoveryFailedException(String message, Exception cause) {
+        super(message, cause, false, false);
+    }
+
+    static RecoveryFailedException superseded(Exception failure) {
+        return new RecoveryFailedException("Superseded by " + failure.getClass().getSimpleName(), failure);
+    }
+
+    // The failure the rest of the chain should handle in place of the original one
+    Exception failure(Exception original) {
+        return getCause() instanceof Exception ? (Exception) getCause() : original;
+    }
+}
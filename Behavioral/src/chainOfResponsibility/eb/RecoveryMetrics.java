@@ -0,0 +1,177 @@
+package chainOfResponsibility.eb;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and histograms for the error handler chain.
+ * Recording is lock-free (LongAdder); snapshot() copies everything into plain maps.
+ */
+public class RecoveryMetrics {
+    // Retry histogram is exact up to this many attempts, the last bucket is "or more"
+    private static final int RETRY_BUCKETS = 16;
+    // Power-of-two microsecond buckets: [0,1), [1,2), [2,4) ... up to ~36 minutes
+    private static final int TIME_BUCKETS = 32;
+
+    private final LongAdder[] actions = newAdders(RecoveryResult.RecoveryAction.values().length);
+    private final ConcurrentHashMap<String, HandlerStats> handlers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> exceptions = new ConcurrentHashMap<>();
+    private final LongAdder[] retryAttempts = newAdders(RETRY_BUCKETS);
+    private final LongAdder[] recoveryTimeMicros = newAdders(TIME_BUCKETS);
+    private final LongAdder successes = new LongAdder();
+
+    public void recordSuccess() {
+        successes.increment();
+    }
+
+    public void recordException(Exception exception) {
+        exceptions.computeIfAbsent(exception.getClass().getSimpleName(), k -> new LongAdder())
+                .increment();
+    }
+
+    public void recordRecovery(RecoveryResult result, OrderContext context, long elapsedNanos) {
+        actions[result.getActionTaken().ordinal()].increment();
+        retryAttempts[Math.min(context.getRetryCount(), RETRY_BUCKETS - 1)].increment();
+        recoveryTimeMicros[timeBucket(elapsedNanos)].increment();
+    }
+
+    public void recordHandler(String handler, boolean recovered, long elapsedNanos) {
+        handlers.computeIfAbsent(handler, k -> new HandlerStats()).record(recovered, elapsedNanos);
+    }
+
+    public Snapshot snapshot() {
+        Map<RecoveryResult.RecoveryAction, Long> actionCounts =
+                new EnumMap<>(RecoveryResult.RecoveryAction.class);
+        for (RecoveryResult.RecoveryAction action : RecoveryResult.RecoveryAction.values()) {
+            actionCounts.put(action, actions[action.ordinal()].sum());
+        }
+
+        Map<String, HandlerSnapshot> handlerSnapshots = new LinkedHashMap<>();
+        handlers.forEach((name, stats) -> handlerSnapshots.put(name, stats.snapshot()));
+
+        Map<String, Long> exceptionCounts = new LinkedHashMap<>();
+        exceptions.forEach((name, count) -> exceptionCounts.put(name, count.sum()));
+
+        return new Snapshot(successes.sum(), actionCounts, handlerSnapshots, exceptionCounts,
+                sums(retryAttempts), sums(recoveryTimeMicros));
+    }
+
+    private static int timeBucket(long elapsedNanos) {
+        long micros = elapsedNanos / 1_000;
+        if (micros <= 0) return 0;
+        return Math.min(64 - Long.numberOfLeadingZeros(micros), TIME_BUCKETS - 1);
+    }
+
+    private static LongAdder[] newAdders(int size) {
+        LongAdder[] adders = new LongAdder[size];
+        for (int i = 0; i < size; i++) adders[i] = new LongAdder();
+        return adders;
+    }
+
+    private static long[] sums(LongAdder[] adders) {
+        long[] values = new long[adders.length];
+        for (int i = 0; i < adders.length; i++) values[i] = adders[i].sum();
+        return values;
+    }
+
+    private static class HandlerStats {
+        private final LongAdder recovered = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+
+        void record(boolean success, long elapsedNanos) {
+            (success ? recovered : failed).increment();
+            totalNanos.add(elapsedNanos);
+        }
+
+        HandlerSnapshot snapshot() {
+            return new HandlerSnapshot(recovered.sum(), failed.sum(), totalNanos.sum());
+        }
+    }
+
+    public static class HandlerSnapshot {
+        private final long recovered;
+        private final long failed;
+        private final long totalNanos;
+
+        HandlerSnapshot(long recovered, long failed, long totalNanos) {
+            this.recovered = recovered;
+            this.failed = failed;
+            this.totalNanos = totalNanos;
+        }
+
+        public long getRecovered() { return recovered; }
+        public long getFailed() { return failed; }
+        public long getTotalNanos() { return totalNanos; }
+        public long getAverageMicros() {
+            long calls = recovered + failed;
+            return calls == 0 ? 0 : totalNanos / calls / 1_000;
+        }
+
+        @Override
+        public String toString() {
+            return "recovered=" + recovered + ", failed=" + failed +
+                    ", avg=" + getAverageMicros() + "us";
+        }
+    }
+
+    public static class Snapshot {
+        private final long successes;
+        private final Map<RecoveryResult.RecoveryAction, Long> actions;
+        private final Map<String, HandlerSnapshot> handlers;
+        private final Map<String, Long> exceptions;
+        private final long[] retryAttempts;
+        private final long[] recoveryTimeMicros;
+
+        Snapshot(long successes, Map<RecoveryResult.RecoveryAction, Long> actions,
+                 Map<String, HandlerSnapshot> handlers, Map<String, Long> exceptions,
+                 long[] retryAttempts, long[] recoveryTimeMicros) {
+            this.successes = successes;
+            this.actions = Collections.unmodifiableMap(actions);
+            this.handlers = Collections.unmodifiableMap(handlers);
+            this.exceptions = Collections.unmodifiableMap(exceptions);
+            this.retryAttempts = retryAttempts;
+            this.recoveryTimeMicros = recoveryTimeMicros;
+        }
+
+        public long getSuccesses() { return successes; }
+        public Map<RecoveryResult.RecoveryAction, Long> getActions() { return actions; }
+        public Map<String, HandlerSnapshot> getHandlers() { return handlers; }
+        public Map<String, Long> getExceptions() { return exceptions; }
+
+        // Index i = orders that needed i retries; the last index also counts anything above
+        public long[] getRetryAttempts() { return retryAttempts.clone(); }
+
+        // Index 0 = under 1us, index i = [2^(i-1), 2^i) microseconds
+        public long[] getRecoveryTimeMicros() { return recoveryTimeMicros.clone(); }
+
+        // Upper bound (in microseconds) of the bucket holding the given quantile
+        public long recoveryTimePercentileMicros(double quantile) {
+            long total = 0;
+            for (long count : recoveryTimeMicros) total += count;
+            if (total == 0) return 0;
+
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < recoveryTimeMicros.length; i++) {
+                seen += recoveryTimeMicros[i];
+                if (seen >= rank) return 1L << i;
+            }
+            return 1L << (recoveryTimeMicros.length - 1);
+        }
+
+        @Override
+        public String toString() {
+            return "successes=" + successes +
+                    ", actions=" + actions +
+                    ", handlers=" + handlers +
+                    ", exceptions=" + exceptions +
+                    ", recoveryP50=" + recoveryTimePercentileMicros(0.5) + "us" +
+                    ", recoveryP99=" + recoveryTimePercentileMicros(0.99) + "us";
+        }
+    }
+}
@@ -4,21 +4,31 @@ public class RetryableErrorHandler extends AbstractErrorHandler {
     private static final int MAX_RETRIES = 3;
     private static final long BASE_DELAY_MS = 100;
 
+    private final OrderWorkflow workflow;
+
+    public RetryableErrorHandler() {
+        this(null);
+    }
+
+    // With a workflow, retries resume from the first unfinished step instead of simulating
+    public RetryableErrorHandler(OrderWorkflow workflow) {
+        this.workflow = workflow;
+    }
+
     @Override
     protected RecoveryResult attemptRecovery(Exception exception, OrderContext context) throws Exception {
         if (context.getRetryCount() >= MAX_RETRIES) {
-            throw new Exception("Max retries exceeded");
+            throw RecoveryFailedException.MAX_RETRIES_EXCEEDED;
         }
 
         context.incrementRetryCount();
-        context.addAttemptedRecovery("RETRY");
+        context.addAttemptedRecovery(OrderContext.RecoveryStep.RETRY);
 
         // Exponential backoff
         long delay = BASE_DELAY_MS * (long) Math.pow(2, context.getRetryCount() - 1);
         Thread.sleep(delay);
 
-        // Simulate retry logic (in real system, would re-invoke failed operation)
-        boolean retrySuccess = simulateRetry(context);
+        boolean retrySuccess = workflow != null ? resume(context) : simulateRetry(context);
 
         if (retrySuccess) {
             return RecoveryResult.success(
@@ -28,7 +38,7 @@ public class RetryableErrorHandler extends AbstractErrorHandler {
             );
         }
 
-        throw new Exception("Retry failed");
+        throw RecoveryFailedException.RETRY_FAILED;
     }
 
     @Override
@@ -36,6 +46,17 @@ public class RetryableErrorHandler extends AbstractErrorHandler {
         return exception instanceof TransientException;
     }
 
+    // A step that fails again hands its own exception to the rest of the chain
+    private boolean resume(OrderContext context) throws RecoveryFailedException {
+        try {
+            workflow.resume(context);
+            return true;
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            throw RecoveryFailedException.superseded(e);
+        }
+    }
+
     private boolean simulateRetry(OrderContext context) {
         // In real system: re-invoke the failed service call
         return context.getRetryCount() >= 2; // Succeed on 2nd retry
@@ -1,7 +1,29 @@
 package chainOfResponsibility.eb;
 
+import java.util.EnumMap;
+import java.util.Map;
+
 public class ServiceUnavailableException extends TransientException {
+    // One shared instance per workflow step, created up front; callers cannot grow the set
+    private static final Map<WorkflowStep, ServiceUnavailableException> STACKLESS =
+            new EnumMap<>(WorkflowStep.class);
+
+    static {
+        for (WorkflowStep step : WorkflowStep.values()) {
+            STACKLESS.put(step, new ServiceUnavailableException(step.getService(), false));
+        }
+    }
+
     public ServiceUnavailableException(String service) {
         super("Service unavailable: " + service);
     }
+
+    private ServiceUnavailableException(String service, boolean writableStackTrace) {
+        super("Service unavailable: " + service, writableStackTrace);
+    }
+
+    // Expected outage signal, used only for classification by the handler chain
+    public static ServiceUnavailableException stackless(WorkflowStep step) {
+        return STACKLESS.get(step);
+    }
 }
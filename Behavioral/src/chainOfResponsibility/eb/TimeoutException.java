@@ -1,7 +1,28 @@
 package chainOfResponsibility.eb;
 
+import java.util.EnumMap;
+import java.util.Map;
+
 public class TimeoutException extends RuntimeException {
+    // One shared instance per workflow step, created up front; callers cannot grow the set
+    private static final Map<WorkflowStep, TimeoutException> STACKLESS = new EnumMap<>(WorkflowStep.class);
+
+    static {
+        for (WorkflowStep step : WorkflowStep.values()) {
+            STACKLESS.put(step, new TimeoutException(step.getService(), false));
+        }
+    }
+
     public TimeoutException(String operation) {
         super("Operation timed out: " + operation);
     }
+
+    private TimeoutException(String operation, boolean writableStackTrace) {
+        super("Operation timed out: " + operation, null, false, writableStackTrace);
+    }
+
+    // Expected timeout signal, used only for classification by the handler chain
+    public static TimeoutException stackless(WorkflowStep step) {
+        return STACKLESS.get(step);
+    }
 }
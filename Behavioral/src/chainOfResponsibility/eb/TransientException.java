@@ -4,4 +4,9 @@ public class TransientException extends RuntimeException {
     public TransientException(String message) {
         super(message);
     }
+
+    // For preallocated, stackless subclasses: no stack trace, no suppression
+    protected TransientException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
 }
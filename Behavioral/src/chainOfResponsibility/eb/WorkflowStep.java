@@ -0,0 +1,15 @@
+package chainOfResponsibility.eb;
+
+public enum WorkflowStep {
+    INVENTORY("inventory-service"),
+    PAYMENT("payment-service"),
+    SHIPPING("shipping-service");
+
+    private final String service;
+
+    WorkflowStep(String service) {
+        this.service = service;
+    }
+
+    public String getService() { return service; }
+}
@@ -0,0 +1,94 @@
+package singleton.ea;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact binary sink, one frame per flush:
+ * [long timestampMillis][int entryCount][byte mode: 0 delta, 1 cumulative] then per entry
+ * [byte type][int metricIndex][double value].
+ *
+ * A metric name is written once as a DEFINE entry ([byte 0][int index][short len][utf8])
+ * the first time this exporter sees it; later frames only carry its index. Indexes restart
+ * with each process, so readers must let a DEFINE replace any earlier one.
+ */
+public class BinaryFileExporter implements MetricsExporter {
+    public static final byte DEFINE = 0;
+    public static final byte COUNTER = 1;
+    public static final byte GAUGE = 2;
+    public static final byte P50 = 3;
+    public static final byte P99 = 4;
+    public static final byte MAX = 5;
+    public static final byte COUNT = 6;
+
+    private final FileChannel channel;
+    private final Map<MetricId, Integer> indexes = new HashMap<>();
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+    private int entries;
+
+    public BinaryFileExporter(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public void export(MetricsSnapshot snapshot) throws IOException {
+        buffer.clear();
+        buffer.putLong(snapshot.getTimestampMillis());
+        buffer.putInt(0); // Entry count, patched below
+        buffer.put((byte) snapshot.getMode().ordinal());
+        entries = 0;
+
+        snapshot.getCounters().forEach((id, v) -> entry(COUNTER, id, v));
+        snapshot.getGauges().forEach((id, v) -> entry(GAUGE, id, v));
+        snapshot.getHistograms().forEach(this::histogram);
+        snapshot.getTimers().forEach(this::histogram);
+
+        buffer.putInt(8, entries);
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    private void histogram(MetricId id, HistogramSnapshot h) {
+        entry(COUNT, id, h.getCount());
+        entry(P50, id, h.percentile(0.50));
+        entry(P99, id, h.percentile(0.99));
+        entry(MAX, id, h.getMax());
+    }
+
+    private void entry(byte type, MetricId id, double value) {
+        Integer index = indexes.get(id);
+        if (index == null) {
+            index = indexes.size();
+            indexes.put(id, index);
+            byte[] name = id.toString().getBytes(StandardCharsets.UTF_8);
+            ensure(1 + 4 + 2 + name.length);
+            buffer.put(DEFINE).putInt(index).putShort((short) name.length).put(name);
+            entries++;
+        }
+        ensure(1 + 4 + 8);
+        buffer.put(type).putInt(index).putDouble(value);
+        entries++;
+    }
+
+    // Grows (and from then on keeps) a larger buffer if one frame does not fit
+    private void ensure(int bytes) {
+        if (buffer.remaining() >= bytes) return;
+        ByteBuffer larger = ByteBuffer.allocateDirect(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+        buffer.flip();
+        larger.put(buffer);
+        buffer = larger;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.force(false);
+        channel.close();
+    }
+}
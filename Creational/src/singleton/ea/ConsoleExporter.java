@@ -0,0 +1,19 @@
+package singleton.ea;
+
+// The original stdout output; registered by default
+public class ConsoleExporter implements MetricsExporter {
+    @Override
+    public void export(MetricsSnapshot snapshot) {
+        System.out.println("[System] Flushing buffer to backend...");
+        snapshot.getCounters().forEach((k, v) ->
+                System.out.println("   >> Metric: " + k + " = " + v + " (" + snapshot.getRates().get(k) + ")"));
+        snapshot.getHistograms().forEach((k, v) ->
+                System.out.println("   >> Histogram: " + k + " " + v));
+        snapshot.getTimers().forEach((k, v) ->
+                System.out.println("   >> Timer(ns): " + k + " " + v));
+        snapshot.getGauges().forEach((k, v) ->
+                System.out.println("   >> Gauge: " + k + " = " + v));
+        snapshot.getHeavyHitters().forEach((k, v) ->
+                System.out.println("   >> Top: " + k + " " + v));
+    }
+}
@@ -0,0 +1,56 @@
+package singleton.ea;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pre-resolved counter handle. Look it up once via MetricsRegistry.counter(...)
+ * and keep it in a field; increment() is then a bare LongAdder update.
+ *
+ * The adder is never reset. Each flush reads the running total and subtracts the total
+ * it saw last time, so an increment racing with a flush is counted in exactly one
+ * interval. The read costs O(cells) (bounded by CPU count), not O(recording threads).
+ */
+public class Counter {
+    private final MetricId id;
+    private final LongAdder adder = new LongAdder();
+
+    // Flusher-thread state
+    private long previousTotal;
+    private final Ewma oneMinute = new Ewma(60);
+    private final Ewma fiveMinute = new Ewma(300);
+    private final Ewma fifteenMinute = new Ewma(900);
+
+    Counter(MetricId id) {
+        this.id = id;
+    }
+
+    public void increment() {
+        adder.increment();
+    }
+
+    public void add(long delta) {
+        adder.add(delta);
+    }
+
+    public MetricId getId() { return id; }
+
+    public long total() {
+        return adder.sum();
+    }
+
+    public Rates getRates() {
+        return new Rates(oneMinute.getRate(), fiveMinute.getRate(), fifteenMinute.getRate());
+    }
+
+    // Called once per flush by the flusher thread; returns the events since the last call
+    long tick(double intervalSeconds) {
+        long total = adder.sum();
+        long delta = total - previousTotal;
+        previousTotal = total;
+
+        oneMinute.tick(delta, intervalSeconds);
+        fiveMinute.tick(delta, intervalSeconds);
+        fifteenMinute.tick(delta, intervalSeconds);
+        return delta;
+    }
+}
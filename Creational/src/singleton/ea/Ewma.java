@@ -0,0 +1,30 @@
+package singleton.ea;
+
+/**
+ * Exponentially weighted moving rate (events per second), in the style of Unix load
+ * averages. Only the flusher thread calls tick(); readers see the latest value.
+ */
+class Ewma {
+    private final double windowSeconds;
+    private volatile double ratePerSecond;
+    private boolean initialized;
+
+    Ewma(double windowSeconds) {
+        this.windowSeconds = windowSeconds;
+    }
+
+    void tick(long events, double intervalSeconds) {
+        double instant = events / intervalSeconds;
+        if (!initialized) {
+            ratePerSecond = instant;
+            initialized = true;
+            return;
+        }
+        double alpha = 1 - Math.exp(-intervalSeconds / windowSeconds);
+        ratePerSecond += alpha * (instant - ratePerSecond);
+    }
+
+    double getRate() {
+        return ratePerSecond;
+    }
+}
@@ -0,0 +1,8 @@
+package singleton.ea;
+
+public enum ExportMode {
+    // Counters and histograms cover only the last flush interval
+    DELTA,
+    // Counters and histograms cover everything since startup
+    CUMULATIVE
+}
@@ -0,0 +1,7 @@
+package singleton.ea;
+
+// Sampled by the flusher thread only, so implementations may be moderately expensive
+@FunctionalInterface
+public interface Gauge {
+    double value();
+}
@@ -0,0 +1,78 @@
+package singleton.ea;
+
+import java.nio.ByteBuffer;
+
+// Reads back a stream written by GorillaEncoder
+class GorillaDecoder {
+    private final ByteBuffer buffer;
+    private final int offset;
+
+    private long bitPos;
+    private int read;
+    private long timestamp;
+    private long delta;
+    private long bits;
+    private int leading;
+    private int trailing;
+
+    GorillaDecoder(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+    }
+
+    // Advances to the next point; call getTimestamp()/getValue() afterwards
+    void next() {
+        if (read == 0) {
+            timestamp = readBits(64);
+            bits = readBits(64);
+        } else {
+            readTimestamp();
+            readValue();
+        }
+        read++;
+    }
+
+    long getTimestamp() { return timestamp; }
+    double getValue() { return Double.longBitsToDouble(bits); }
+
+    private void readTimestamp() {
+        long dod;
+        if (readBits(1) == 0) {
+            dod = 0;
+        } else if (readBits(1) == 0) {
+            dod = readBits(7) - 63;
+        } else if (readBits(1) == 0) {
+            dod = readBits(9) - 255;
+        } else if (readBits(1) == 0) {
+            dod = readBits(12) - 2047;
+        } else {
+            dod = readBits(64);
+        }
+        delta += dod;
+        timestamp += delta;
+    }
+
+    private void readValue() {
+        if (readBits(1) == 0) return;
+
+        if (readBits(1) != 0) {
+            leading = (int) readBits(5);
+            int meaningful = (int) readBits(6);
+            if (meaningful == 0) meaningful = 64;
+            trailing = 64 - leading - meaningful;
+        }
+        long xor = readBits(64 - leading - trailing) << trailing;
+        bits ^= xor;
+    }
+
+    private long readBits(int count) {
+        long value = 0;
+        for (int i = 0; i < count; i++) {
+            int index = offset + (int) (bitPos >>> 3);
+            int bit = (buffer.get(index) >>> (7 - (bitPos & 7))) & 1;
+            value = (value << 1) | bit;
+            bitPos++;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,116 @@
+package singleton.ea;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Writes one Gorilla-compressed (timestamp, double) stream into a fixed region of a
+ * ByteBuffer (in practice a memory-mapped segment).
+ *
+ * Timestamps: the first is stored raw, later ones as delta-of-delta with a
+ * '0' / '10'+7 / '110'+9 / '1110'+12 / '1111'+64 bit prefix code.
+ * Values: XOR with the previous value; '0' if identical, '10' + meaningful bits if they
+ * fit the previous leading/trailing-zero window, else '11' + 5 bit leading zeros +
+ * 6 bit length + meaningful bits. Regular per-second series cost about 1-2 bytes per point.
+ *
+ * The region must be zero-filled; bits are OR-ed in.
+ */
+class GorillaEncoder {
+    // Worst case for one point after the first: 4 + 64 timestamp bits, 2 + 5 + 6 + 64 value bits
+    static final int MAX_POINT_BITS = 145;
+
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final long capacityBits;
+
+    private long bitPos;
+    private int count;
+    private long prevTimestamp;
+    private long prevDelta;
+    private long prevBits;
+    private int prevLeading = -1;
+    private int prevTrailing;
+
+    GorillaEncoder(ByteBuffer buffer, int offset, int capacityBytes) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.capacityBits = capacityBytes * 8L;
+    }
+
+    boolean hasRoom() {
+        return bitPos + MAX_POINT_BITS <= capacityBits;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    void append(long timestamp, double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        if (count == 0) {
+            writeBits(timestamp, 64);
+            writeBits(bits, 64);
+        } else {
+            writeTimestamp(timestamp);
+            writeValue(bits);
+        }
+        prevTimestamp = timestamp;
+        prevBits = bits;
+        count++;
+    }
+
+    private void writeTimestamp(long timestamp) {
+        long delta = timestamp - prevTimestamp;
+        long dod = delta - prevDelta;
+        prevDelta = delta;
+
+        if (dod == 0) {
+            writeBits(0, 1);
+        } else if (dod >= -63 && dod <= 64) {
+            writeBits(0b10, 2);
+            writeBits(dod + 63, 7);
+        } else if (dod >= -255 && dod <= 256) {
+            writeBits(0b110, 3);
+            writeBits(dod + 255, 9);
+        } else if (dod >= -2047 && dod <= 2048) {
+            writeBits(0b1110, 4);
+            writeBits(dod + 2047, 12);
+        } else {
+            writeBits(0b1111, 4);
+            writeBits(dod, 64);
+        }
+    }
+
+    private void writeValue(long bits) {
+        long xor = bits ^ prevBits;
+        if (xor == 0) {
+            writeBits(0, 1);
+            return;
+        }
+
+        int leading = Math.min(31, Long.numberOfLeadingZeros(xor));
+        int trailing = Long.numberOfTrailingZeros(xor);
+        if (prevLeading != -1 && leading >= prevLeading && trailing >= prevTrailing) {
+            writeBits(0b10, 2);
+            writeBits(xor >>> prevTrailing, 64 - prevLeading - prevTrailing);
+        } else {
+            int meaningful = 64 - leading - trailing;
+            writeBits(0b11, 2);
+            writeBits(leading, 5);
+            writeBits(meaningful == 64 ? 0 : meaningful, 6);
+            writeBits(xor >>> trailing, meaningful);
+            prevLeading = leading;
+            prevTrailing = trailing;
+        }
+    }
+
+    // Most significant of the low 'count' bits first
+    private void writeBits(long value, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            if (((value >>> i) & 1) != 0) {
+                int index = offset + (int) (bitPos >>> 3);
+                buffer.put(index, (byte) (buffer.get(index) | (0x80 >>> (bitPos & 7))));
+            }
+            bitPos++;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package singleton.ea;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Approximate per-key counts for high-cardinality dimensions (client IDs, URLs) in
+ * fixed memory: a count-min sketch estimates every key, and only the K keys with the
+ * largest estimates are remembered by name. Estimates can overcount on hash collisions,
+ * never undercount.
+ *
+ * A key already in the top K is updated in place without the lock, so a hot key costs
+ * one map update per record; the lock is only taken to admit a new key or evict one.
+ */
+public class HeavyHitters {
+    private static final int DEPTH = 4;
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L
+    };
+
+    private final int k;
+    private final int widthMask;
+    private final AtomicLongArray sketch;
+    private final ConcurrentHashMap<String, Long> top;
+    // Smallest count in a full top-K set when last computed; counts only grow in between,
+    // so estimates below it can skip the lock entirely
+    private volatile long admissionThreshold;
+
+    /**
+     * @param k     number of keys to track by name
+     * @param width sketch columns per row (rounded up to a power of two); error is
+     *              roughly total / width
+     */
+    public HeavyHitters(int k, int width) {
+        this.k = k;
+        int columns = Integer.highestOneBit(Math.max(16, width) * 2 - 1);
+        this.widthMask = columns - 1;
+        this.sketch = new AtomicLongArray(DEPTH * columns);
+        this.top = new ConcurrentHashMap<>(k * 2);
+    }
+
+    public void record(String key) {
+        record(key, 1);
+    }
+
+    public void record(String key, long count) {
+        int hash = key.hashCode();
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = row * (widthMask + 1) + column(hash, row);
+            estimate = Math.min(estimate, sketch.addAndGet(index, count));
+        }
+        if (estimate < admissionThreshold) return;
+        // Estimates of one key only grow, but concurrent records may land out of order
+        long latest = estimate;
+        if (top.computeIfPresent(key, (name, current) -> Math.max(current, latest)) == null) {
+            admit(key, latest);
+        }
+    }
+
+    private synchronized void admit(String key, long estimate) {
+        if (top.size() < k || top.containsKey(key)) {
+            top.merge(key, estimate, Math::max);
+        } else {
+            String smallest = null;
+            long min = Long.MAX_VALUE;
+            for (Map.Entry<String, Long> e : top.entrySet()) {
+                if (e.getValue() < min) {
+                    min = e.getValue();
+                    smallest = e.getKey();
+                }
+            }
+            if (estimate <= min) return;
+            top.remove(smallest);
+            top.put(key, estimate);
+        }
+        if (top.size() >= k) {
+            long min = Long.MAX_VALUE;
+            for (long v : top.values()) min = Math.min(min, v);
+            admissionThreshold = min;
+        }
+    }
+
+    public synchronized List<Entry> topK() {
+        List<Entry> entries = new ArrayList<>(top.size());
+        top.forEach((key, count) -> entries.add(new Entry(key, count)));
+        entries.sort(Comparator.comparingLong(Entry::getCount).reversed());
+        return entries;
+    }
+
+    // Per-interval view: returns this interval's leaders and starts the next one empty
+    synchronized List<Entry> topKAndReset() {
+        List<Entry> entries = topK();
+        for (int i = 0; i < sketch.length(); i++) sketch.set(i, 0);
+        top.clear();
+        admissionThreshold = 0;
+        return entries;
+    }
+
+    private int column(int hash, int row) {
+        long h = (hash ^ SEEDS[row]) * 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h & widthMask;
+    }
+
+    public static class Entry {
+        private final String key;
+        private final long count;
+
+        Entry(String key, long count) {
+            this.key = key;
+            this.count = count;
+        }
+
+        public String getKey() { return key; }
+        public long getCount() { return count; }
+
+        @Override
+        public String toString() {
+            return key + "=" + count;
+        }
+    }
+}
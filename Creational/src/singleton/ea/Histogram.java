@@ -0,0 +1,106 @@
+package singleton.ea;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free log-linear histogram for non-negative long values (latencies, sizes).
+ *
+ * Each power of two is split into 16 linear sub-buckets, so any recorded value is
+ * reported within ~6% of its true value. Recording touches one stripe chosen by thread
+ * id, which keeps contended threads on different cache lines; record() never allocates.
+ */
+public class Histogram {
+    static final int SUB_BUCKET_BITS = 4;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    // Per stripe: [0, BUCKETS) counts, then sum and max. The sum saturates at
+    // Long.MAX_VALUE instead of wrapping, so a huge total never turns the mean negative
+    private static final int SUM = BUCKETS;
+    private static final int MAX = BUCKETS + 1;
+    private static final int STRIPE_LENGTH = BUCKETS + 2;
+
+    private final AtomicLongArray[] stripes;
+    private final int mask;
+
+    public Histogram() {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        int count = Integer.highestOneBit(Math.min(16, Math.max(1, cpus)) * 2 - 1);
+        this.stripes = new AtomicLongArray[count];
+        for (int i = 0; i < count; i++) stripes[i] = new AtomicLongArray(STRIPE_LENGTH);
+        this.mask = count - 1;
+    }
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        AtomicLongArray stripe = stripes[(int) Thread.currentThread().getId() & mask];
+        stripe.getAndIncrement(bucketIndex(value));
+        long sum = stripe.get(SUM);
+        while (sum != Long.MAX_VALUE && !stripe.compareAndSet(SUM, sum, saturatedAdd(sum, value))) {
+            sum = stripe.get(SUM);
+        }
+
+        long max = stripe.get(MAX);
+        while (value > max && !stripe.compareAndSet(MAX, max, value)) {
+            max = stripe.get(MAX);
+        }
+    }
+
+    public HistogramSnapshot snapshot() {
+        return collect(false);
+    }
+
+    /**
+     * Snapshot and clear in one pass. Each field is swapped on its own, so no recorded
+     * count, sum or max is lost, but the stripes are not swapped as a whole: a record that
+     * races with the reset may have its count in this interval and its sum or max in the
+     * next. Interval totals stay exact over time; a single interval's mean can be off by
+     * the values in flight at the reset.
+     */
+    public HistogramSnapshot snapshotAndReset() {
+        return collect(true);
+    }
+
+    private HistogramSnapshot collect(boolean reset) {
+        long[] counts = new long[BUCKETS];
+        long sum = 0;
+        long max = 0;
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += reset ? stripe.getAndSet(i, 0) : stripe.get(i);
+            }
+            sum = saturatedAdd(sum, reset ? stripe.getAndSet(SUM, 0) : stripe.get(SUM));
+            max = Math.max(max, reset ? stripe.getAndSet(MAX, 0) : stripe.get(MAX));
+        }
+        return new HistogramSnapshot(counts, sum, max);
+    }
+
+    // Both arguments are non-negative
+    static long saturatedAdd(long a, long b) {
+        long r = a + b;
+        return r < 0 ? Long.MAX_VALUE : r;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + sub;
+    }
+
+    // Smallest value that maps to the bucket
+    static long bucketLowerBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = index / SUB_BUCKETS - 1;
+        long sub = index % SUB_BUCKETS;
+        return (SUB_BUCKETS | sub) << shift;
+    }
+
+    // Largest value that maps to the bucket
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = index / SUB_BUCKETS - 1;
+        return bucketLowerBound(index) + (1L << shift) - 1;
+    }
+}
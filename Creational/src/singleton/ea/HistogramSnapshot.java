@@ -0,0 +1,61 @@
+package singleton.ea;
+
+/**
+ * Immutable copy of a Histogram's buckets. Snapshots taken on different nodes or in
+ * different intervals can be merged, since they share the same bucket layout.
+ */
+public class HistogramSnapshot {
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    HistogramSnapshot(long[] counts, long sum, long max) {
+        this.counts = counts;
+        this.sum = sum;
+        this.max = max;
+        long total = 0;
+        for (long c : counts) total += c;
+        this.count = total;
+    }
+
+    public static HistogramSnapshot empty() {
+        return new HistogramSnapshot(new long[Histogram.BUCKETS], 0, 0);
+    }
+
+    public HistogramSnapshot merge(HistogramSnapshot other) {
+        long[] merged = counts.clone();
+        for (int i = 0; i < merged.length; i++) merged[i] += other.counts[i];
+        return new HistogramSnapshot(merged, Histogram.saturatedAdd(sum, other.sum), Math.max(max, other.max));
+    }
+
+    public long getCount() { return count; }
+    public long getSum() { return sum; }
+    public long getMax() { return max; }
+    public double getMean() { return count == 0 ? 0 : (double) sum / count; }
+
+    /**
+     * Value at the given quantile (0.0 - 1.0), reported as the midpoint of the bucket
+     * that holds it and never above the recorded max.
+     */
+    public long percentile(double quantile) {
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                long lo = Histogram.bucketLowerBound(i);
+                long hi = Histogram.bucketUpperBound(i);
+                return Math.min(max, lo + (hi - lo) / 2);
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count + ", mean=" + Math.round(getMean()) +
+                ", p50=" + percentile(0.50) + ", p99=" + percentile(0.99) + ", max=" + max;
+    }
+}
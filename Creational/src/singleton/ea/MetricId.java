@@ -0,0 +1,35 @@
+package singleton.ea;
+
+// Name plus tags; the key for tagged metrics in snapshots and exporters
+public final class MetricId {
+    private final String name;
+    private final Tags tags;
+    private final int hash;
+
+    public MetricId(String name, Tags tags) {
+        this.name = name;
+        this.tags = tags;
+        this.hash = 31 * name.hashCode() + tags.hashCode();
+    }
+
+    public String getName() { return name; }
+    public Tags getTags() { return tags; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MetricId)) return false;
+        MetricId other = (MetricId) o;
+        return name.equals(other.name) && tags.equals(other.tags);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return tags.isEmpty() ? name : name + "{" + tags + "}";
+    }
+}
@@ -0,0 +1,16 @@
+package singleton.ea;
+
+import java.io.IOException;
+
+/**
+ * Backend SPI for MetricsRegistry. export() is only ever called from the
+ * metrics-flusher thread, one snapshot per interval, so implementations may reuse
+ * their encode buffers freely and may do I/O without stalling recording threads.
+ */
+public interface MetricsExporter extends AutoCloseable {
+    void export(MetricsSnapshot snapshot) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -1,8 +1,15 @@
 package singleton.ea;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MetricsRegistry {
 
@@ -11,11 +18,39 @@ public class MetricsRegistry {
     private static volatile MetricsRegistry instance;
 
     // High-performance counter for heavy contention
-    private final ConcurrentHashMap<String, LongAdder> counters;
+    private final ConcurrentHashMap<String, Counter> counters;
+    // Keyed by name, then tags, so a lookup allocates no MetricId
+    private final ConcurrentHashMap<String, ConcurrentHashMap<Tags, Counter>> taggedCounters;
+    private final ConcurrentHashMap<String, Histogram> histograms;
+    private final ConcurrentHashMap<String, Timer> timers;
+    private final ConcurrentHashMap<String, Gauge> gauges;
+    private final ConcurrentHashMap<String, HeavyHitters> heavyHitters;
+    private final CopyOnWriteArrayList<MetricsExporter> exporters;
+
+    // Cardinality guard: once this many series exist, new names share the overflow handles.
+    // A full registry answers unknown series with a volatile read, so repeated rejections
+    // allocate nothing and never touch the maps
+    private static final String OVERFLOW = "metrics.overflow";
+    // The overflow histogram would share the counter's exported name, so it gets its own
+    private static final String OVERFLOW_VALUES = OVERFLOW + ".values";
+    private volatile int maxSeries = 10_000;
+    private final AtomicInteger seriesCount = new AtomicInteger();
+    private final Counter overflowCounter = new Counter(new MetricId(OVERFLOW, Tags.EMPTY));
+    private final Histogram overflowHistogram = new Histogram();
+    private final Timer overflowTimer = new Timer();
     private final ScheduledExecutorService scheduler;
+    private volatile ExportMode exportMode = ExportMode.DELTA;
+    private long lastFlushNanos = System.nanoTime();
 
     private MetricsRegistry() {
         this.counters = new ConcurrentHashMap<>();
+        this.taggedCounters = new ConcurrentHashMap<>();
+        this.histograms = new ConcurrentHashMap<>();
+        this.timers = new ConcurrentHashMap<>();
+        this.gauges = new ConcurrentHashMap<>();
+        this.heavyHitters = new ConcurrentHashMap<>();
+        this.exporters = new CopyOnWriteArrayList<>();
+        this.exporters.add(new ConsoleExporter());
 
         // Background thread (Daemon) to flush metrics
         this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
@@ -41,30 +76,197 @@ public class MetricsRegistry {
     }
 
     public void increment(String metric) {
-        counters.computeIfAbsent(metric, k -> new LongAdder()).increment();
+        counter(metric).increment();
+    }
+
+    // Resolve once, keep the handle: increments then skip the map lookup entirely
+    public Counter counter(String metric) {
+        Counter counter = counters.get(metric);
+        if (counter != null) return counter;
+        if (full()) return overflowCounter;
+        counter = counters.computeIfAbsent(metric,
+                k -> admitSeries() ? new Counter(new MetricId(k, Tags.EMPTY)) : null);
+        return counter != null ? counter : overflowCounter;
+    }
+
+    public Counter counter(String metric, Tags tags) {
+        if (tags.isEmpty()) return counter(metric);
+        ConcurrentHashMap<Tags, Counter> series = taggedCounters.get(metric);
+        Counter counter = series != null ? series.get(tags) : null;
+        if (counter != null) return counter;
+        if (full()) return overflowCounter;
+
+        if (series == null) series = taggedCounters.computeIfAbsent(metric, k -> new ConcurrentHashMap<>());
+        counter = series.computeIfAbsent(tags,
+                t -> admitSeries() ? new Counter(new MetricId(metric, t)) : null);
+        return counter != null ? counter : overflowCounter;
+    }
+
+    // Keep the returned handle on hot paths to skip the name lookup
+    public Histogram histogram(String metric) {
+        Histogram histogram = histograms.get(metric);
+        if (histogram != null) return histogram;
+        if (full()) return overflowHistogram;
+        histogram = histograms.computeIfAbsent(metric,
+                k -> admitSeries() ? new Histogram() : null);
+        return histogram != null ? histogram : overflowHistogram;
+    }
+
+    public Timer timer(String metric) {
+        Timer timer = timers.get(metric);
+        if (timer != null) return timer;
+        if (full()) return overflowTimer;
+        timer = timers.computeIfAbsent(metric, k -> admitSeries() ? new Timer() : null);
+        return timer != null ? timer : overflowTimer;
+    }
+
+    /**
+     * Approximate top-K counting for dimensions that must not become metric names,
+     * such as per-client request counts. Memory is fixed at creation.
+     */
+    public HeavyHitters heavyHitters(String metric, int k, int width) {
+        return heavyHitters.computeIfAbsent(metric, name -> new HeavyHitters(k, width));
+    }
+
+    public void setCardinalityLimit(int maxSeries) {
+        this.maxSeries = maxSeries;
+    }
+
+    private boolean full() {
+        return seriesCount.get() >= maxSeries;
+    }
+
+    private boolean admitSeries() {
+        while (true) {
+            int current = seriesCount.get();
+            if (current >= maxSeries) return false;
+            if (seriesCount.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    public void record(String metric, long value) {
+        histogram(metric).record(value);
+    }
+
+    // Gauges are pulled at flush time instead of pushed by application threads
+    public void gauge(String metric, Gauge gauge) {
+        gauges.put(metric, gauge);
+    }
+
+    public void setExportMode(ExportMode exportMode) {
+        this.exportMode = exportMode;
+    }
+
+    public void addExporter(MetricsExporter exporter) {
+        exporters.add(exporter);
+    }
+
+    // Drops every exporter, including the default ConsoleExporter
+    public void clearExporters() {
+        exporters.clear();
     }
 
     private void flush() {
-        if (counters.isEmpty()) return;
-        System.out.println("[System] Flushing buffer to backend...");
-        counters.forEach((k, v) ->
-                System.out.println("   >> Metric: " + k + " = " + v.sumThenReset()));
+        MetricsSnapshot snapshot = collect();
+        if (snapshot.isEmpty()) return;
+
+        for (MetricsExporter exporter : exporters) {
+            try {
+                exporter.export(snapshot);
+            } catch (IOException | RuntimeException e) {
+                // One broken backend must not cancel the scheduled flush for the others
+                System.err.println("[System] Exporter " + exporter.getClass().getSimpleName() +
+                        " failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private MetricsSnapshot collect() {
+        long now = System.nanoTime();
+        double intervalSeconds = Math.max(1e-3, (now - lastFlushNanos) / 1e9);
+        lastFlushNanos = now;
+        ExportMode mode = exportMode;
+        boolean cumulative = mode == ExportMode.CUMULATIVE;
+
+        Map<MetricId, Long> counterValues = new HashMap<>();
+        Map<MetricId, Rates> rates = new HashMap<>();
+        for (Counter counter : counters.values()) collect(counter, cumulative, intervalSeconds, counterValues, rates);
+        for (Map<Tags, Counter> series : taggedCounters.values()) {
+            for (Counter counter : series.values()) collect(counter, cumulative, intervalSeconds, counterValues, rates);
+        }
+        if (overflowCounter.total() > 0) collect(overflowCounter, cumulative, intervalSeconds, counterValues, rates);
+
+        // Histograms swap each field on reset, so delta mode loses nothing; a racing record
+        // may be split across two intervals
+        Map<MetricId, HistogramSnapshot> histogramValues = new HashMap<>();
+        histograms.forEach((k, v) -> histogramValues.put(new MetricId(k, Tags.EMPTY),
+                cumulative ? v.snapshot() : v.snapshotAndReset()));
+
+        HistogramSnapshot overflowValues = cumulative ? overflowHistogram.snapshot() : overflowHistogram.snapshotAndReset();
+        if (overflowValues.getCount() > 0) histogramValues.put(new MetricId(OVERFLOW_VALUES, Tags.EMPTY), overflowValues);
+
+        Map<MetricId, HistogramSnapshot> timerValues = new HashMap<>();
+        timers.forEach((k, v) -> timerValues.put(new MetricId(k, Tags.EMPTY),
+                cumulative ? v.snapshot() : v.snapshotAndReset()));
+
+        HistogramSnapshot overflowTimes = cumulative ? overflowTimer.snapshot() : overflowTimer.snapshotAndReset();
+        if (overflowTimes.getCount() > 0) timerValues.put(new MetricId(OVERFLOW, Tags.EMPTY), overflowTimes);
+
+        // Heavy hitters are always per interval: the sketch is cleared on every flush
+        Map<MetricId, List<HeavyHitters.Entry>> topKeys = new HashMap<>();
+        heavyHitters.forEach((k, v) -> topKeys.put(new MetricId(k, Tags.EMPTY), v.topKAndReset()));
+
+        Map<MetricId, Double> gaugeValues = new HashMap<>();
+        gauges.forEach((k, v) -> gaugeValues.put(new MetricId(k, Tags.EMPTY), v.value()));
+
+        return new MetricsSnapshot(System.currentTimeMillis(), mode,
+                counterValues, rates, histogramValues, timerValues, gaugeValues, topKeys);
+    }
+
+    private static void collect(Counter counter, boolean cumulative, double intervalSeconds,
+                                Map<MetricId, Long> values, Map<MetricId, Rates> rates) {
+        long delta = counter.tick(intervalSeconds);
+        values.put(counter.getId(), cumulative ? counter.total() : delta);
+        rates.put(counter.getId(), counter.getRates());
     }
 
     // --- MAIN DRIVER ---
-    public static void main(String[] args) throws InterruptedException {
+    public static void main(String[] args) throws Exception {
         MetricsRegistry registry = MetricsRegistry.getInstance();
+        PrometheusExporter prometheus = new PrometheusExporter(0);
+        registry.addExporter(prometheus);
+        registry.addExporter(new StatsDExporter(8125));
+        Path binary = Files.createTempFile("metrics", ".bin");
+        registry.addExporter(new BinaryFileExporter(binary));
+        TimeSeriesStore history = new TimeSeriesStore(Files.createTempDirectory("tsdb"),
+                TimeUnit.HOURS.toMillis(1), TimeUnit.DAYS.toMillis(7), 16 << 20);
+        registry.addExporter(history);
         ExecutorService pool = Executors.newFixedThreadPool(5);
 
         System.out.println("--- Starting High Concurrency Metrics Test ---");
 
+        Timer latency = registry.timer("api.latency");
+        Counter requests = registry.counter("api.requests");
+        Counter ok = registry.counter("api.responses", Tags.of("status", "200"));
+        Counter failed = registry.counter("api.responses", Tags.of("status", "500"));
+        HeavyHitters clients = registry.heavyHitters("api.requests.by_client", 5, 1024);
+        registry.gauge("jvm.heap.used", () ->
+                Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory());
+
         // Simulate 5 threads spamming metrics
         for (int i = 0; i < 5; i++) {
             pool.submit(() -> {
                 for (int j = 0; j < 100; j++) {
-                    registry.increment("api.latency");
-                    if (j % 10 == 0) registry.increment("db.error");
+                    long start = latency.start();
+                    requests.increment();
+                    if (j % 10 != 0) ok.increment();
+                    clients.record("client-" + (j % 10 == 0 ? j : 7));
+                    if (j % 10 == 0) {
+                        registry.increment("db.error");
+                        failed.increment();
+                    }
                     try { Thread.sleep(10); } catch (Exception e) {}
+                    latency.stop(start);
                 }
             });
         }
@@ -74,6 +276,16 @@ public class MetricsRegistry {
 
         // Wait for the scheduled flush to happen
         Thread.sleep(3000);
+        try (InputStream in = new URL("http://127.0.0.1:" + prometheus.getPort() + "/metrics").openStream()) {
+            System.out.print(new String(in.readAllBytes()));
+        }
+        System.out.println("Prometheus endpoint: http://127.0.0.1:" + prometheus.getPort() + "/metrics");
+        System.out.println("Binary sink: " + binary + " (" + Files.size(binary) + " bytes)");
+        long now = System.currentTimeMillis();
+        System.out.println("History api.requests: " + history.query("api.requests", now - 60_000, now));
+        System.out.println("History api.latency.p99 (10s avg): " + history.downsample("api.latency.p99",
+                now - 60_000, now, 10_000, TimeSeriesStore.Aggregation.AVG));
+        prometheus.close(); // Its HTTP dispatcher thread would otherwise keep the JVM alive
         System.out.println("--- End of Test ---");
     }
 }
@@ -0,0 +1,54 @@
+package singleton.ea;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything collected in one flush interval, handed to every MetricsExporter.
+ * Counter values and histograms cover either this interval or all time, see getMode().
+ */
+public class MetricsSnapshot {
+    private final long timestampMillis;
+    private final ExportMode mode;
+    private final Map<MetricId, Long> counters;
+    private final Map<MetricId, Rates> rates;
+    private final Map<MetricId, HistogramSnapshot> histograms;
+    private final Map<MetricId, HistogramSnapshot> timers;
+    private final Map<MetricId, Double> gauges;
+    private final Map<MetricId, List<HeavyHitters.Entry>> heavyHitters;
+
+    MetricsSnapshot(long timestampMillis,
+                    ExportMode mode,
+                    Map<MetricId, Long> counters,
+                    Map<MetricId, Rates> rates,
+                    Map<MetricId, HistogramSnapshot> histograms,
+                    Map<MetricId, HistogramSnapshot> timers,
+                    Map<MetricId, Double> gauges,
+                    Map<MetricId, List<HeavyHitters.Entry>> heavyHitters) {
+        this.timestampMillis = timestampMillis;
+        this.mode = mode;
+        this.counters = Collections.unmodifiableMap(counters);
+        this.rates = Collections.unmodifiableMap(rates);
+        this.histograms = Collections.unmodifiableMap(histograms);
+        this.timers = Collections.unmodifiableMap(timers);
+        this.gauges = Collections.unmodifiableMap(gauges);
+        this.heavyHitters = Collections.unmodifiableMap(heavyHitters);
+    }
+
+    public long getTimestampMillis() { return timestampMillis; }
+    public ExportMode getMode() { return mode; }
+    public Map<MetricId, Long> getCounters() { return counters; }
+    public Map<MetricId, Rates> getRates() { return rates; }
+    public Map<MetricId, HistogramSnapshot> getHistograms() { return histograms; }
+    // Durations in nanoseconds
+    public Map<MetricId, HistogramSnapshot> getTimers() { return timers; }
+    public Map<MetricId, Double> getGauges() { return gauges; }
+    // Top keys per heavy-hitter metric for this interval, largest first
+    public Map<MetricId, List<HeavyHitters.Entry>> getHeavyHitters() { return heavyHitters; }
+
+    public boolean isEmpty() {
+        return counters.isEmpty() && histograms.isEmpty() && timers.isEmpty() && gauges.isEmpty()
+                && heavyHitters.isEmpty();
+    }
+}
@@ -0,0 +1,200 @@
+package singleton.ea;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+
+/**
+ * Serves the Prometheus text format on http://127.0.0.1:{port}/metrics.
+ *
+ * Prometheus expects cumulative values: delta snapshots are folded into running totals
+ * here, cumulative snapshots replace them. The page is rendered on the flusher thread into a reused
+ * StringBuilder; scrapes only copy out the last published bytes. Series that share a name
+ * are written as one family: a single # TYPE line followed by every tagged sample.
+ * Family names are unique per page: when two kinds of metric render to the same name
+ * (e.g. a counter and a timer both called "metrics.overflow"), the one written first wins
+ * and the other is dropped with a warning, since Prometheus rejects conflicting TYPEs.
+ */
+public class PrometheusExporter implements MetricsExporter {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private final HttpServer server;
+    private final StringBuilder page = new StringBuilder(4096);
+    private final Map<MetricId, Long> counterTotals = new HashMap<>();
+    private final Map<MetricId, HistogramSnapshot> histogramTotals = new HashMap<>();
+    private final Map<MetricId, HistogramSnapshot> timerTotals = new HashMap<>();
+    // Sample names already written on the current page, and collisions already reported
+    private final Set<String> claimedNames = new HashSet<>();
+    private final Set<String> reportedCollisions = new HashSet<>();
+    private volatile byte[] published = new byte[0];
+
+    public PrometheusExporter(int port) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.setExecutor(Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "metrics-prometheus");
+            t.setDaemon(true);
+            return t;
+        }));
+        this.server.createContext("/metrics", exchange -> {
+            byte[] body = published;
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        this.server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void export(MetricsSnapshot snapshot) {
+        if (snapshot.getMode() == ExportMode.CUMULATIVE) {
+            counterTotals.putAll(snapshot.getCounters());
+            histogramTotals.putAll(snapshot.getHistograms());
+            timerTotals.putAll(snapshot.getTimers());
+        } else {
+            snapshot.getCounters().forEach((id, v) -> counterTotals.merge(id, v, Long::sum));
+            snapshot.getHistograms().forEach((id, h) -> histogramTotals.merge(id, h, HistogramSnapshot::merge));
+            snapshot.getTimers().forEach((id, h) -> timerTotals.merge(id, h, HistogramSnapshot::merge));
+        }
+
+        page.setLength(0);
+        claimedNames.clear();
+        family(counterTotals, "", "counter", (id, v) -> sample(id, "", null, v));
+        family(snapshot.getRates(), "_rate_1m", "gauge", (id, r) -> sample(id, "_rate_1m", null, r.getOneMinute()));
+        family(histogramTotals, "", "summary", (id, h) -> summary(id, "", h));
+        family(timerTotals, "_nanoseconds", "summary", (id, h) -> summary(id, "_nanoseconds", h));
+        family(snapshot.getGauges(), "", "gauge", (id, v) -> sample(id, "", null, v));
+        // At most K label values per metric, so the approximate top list is safe to expose
+        family(snapshot.getHeavyHitters(), "_top", "gauge", (id, entries) -> {
+            for (HeavyHitters.Entry entry : entries) {
+                name(id.getName());
+                page.append("_top{key=\"");
+                escape(entry.getKey());
+                page.append("\"} ").append(entry.getCount()).append('\n');
+            }
+        });
+
+        published = page.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Groups series by metric name so each family gets exactly one # TYPE line
+    private <V> void family(Map<MetricId, V> metrics, String suffix, String type, BiConsumer<MetricId, V> samples) {
+        Map<String, List<MetricId>> byName = new TreeMap<>();
+        for (MetricId id : metrics.keySet()) {
+            byName.computeIfAbsent(id.getName(), n -> new ArrayList<>()).add(id);
+        }
+        byName.forEach((name, ids) -> {
+            if (!claim(name, suffix, type)) return;
+            page.append("# TYPE ");
+            name(name);
+            page.append(suffix).append(' ').append(type).append('\n');
+            for (MetricId id : ids) samples.accept(id, metrics.get(id));
+        });
+    }
+
+    // A summary also writes name_sum and name_count, so it needs all three names free
+    private boolean claim(String name, String suffix, String type) {
+        String family = sanitize(name) + suffix;
+        List<String> names = type.equals("summary")
+                ? List.of(family, family + "_sum", family + "_count") : List.of(family);
+        for (String taken : names) {
+            if (claimedNames.contains(taken)) {
+                if (reportedCollisions.add(family + " " + type)) {
+                    System.err.println("Prometheus: dropping " + type + " " + family
+                            + ", the name is already used by another metric type");
+                }
+                return false;
+            }
+        }
+        claimedNames.addAll(names);
+        return true;
+    }
+
+    private void summary(MetricId id, String suffix, HistogramSnapshot h) {
+        for (double q : QUANTILES) {
+            sample(id, suffix, q, h.percentile(q));
+        }
+        sample(id, suffix + "_sum", null, h.getSum());
+        sample(id, suffix + "_count", null, h.getCount());
+    }
+
+    private void sample(MetricId id, String suffix, Double quantile, double value) {
+        name(id.getName());
+        page.append(suffix);
+
+        Tags tags = id.getTags();
+        if (!tags.isEmpty() || quantile != null) {
+            page.append('{');
+            for (int i = 0; i < tags.size(); i++) {
+                if (i > 0) page.append(',');
+                name(tags.key(i));
+                page.append("=\"");
+                escape(tags.value(i));
+                page.append('"');
+            }
+            if (quantile != null) {
+                if (!tags.isEmpty()) page.append(',');
+                page.append("quantile=\"").append(quantile).append('"');
+            }
+            page.append('}');
+        }
+
+        page.append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            page.append((long) value);
+        } else {
+            page.append(value);
+        }
+        page.append('\n');
+    }
+
+    // Prometheus names allow [a-zA-Z0-9_:]; "api.latency" becomes "api_latency"
+    private void name(String name) {
+        for (int i = 0; i < name.length(); i++) page.append(nameChar(name, i));
+    }
+
+    private static String sanitize(String name) {
+        StringBuilder out = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) out.append(nameChar(name, i));
+        return out.toString();
+    }
+
+    private static char nameChar(String name, int i) {
+        char c = name.charAt(i);
+        boolean ok = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == ':'
+                || (c >= '0' && c <= '9' && i > 0);
+        return ok ? c : '_';
+    }
+
+    private void escape(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') page.append('\\').append(c);
+            else if (c == '\n') page.append("\\n");
+            else page.append(c);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,23 @@
+package singleton.ea;
+
+// Moving averages of a counter's rate, in events per second
+public class Rates {
+    private final double oneMinute;
+    private final double fiveMinute;
+    private final double fifteenMinute;
+
+    Rates(double oneMinute, double fiveMinute, double fifteenMinute) {
+        this.oneMinute = oneMinute;
+        this.fiveMinute = fiveMinute;
+        this.fifteenMinute = fifteenMinute;
+    }
+
+    public double getOneMinute() { return oneMinute; }
+    public double getFiveMinute() { return fiveMinute; }
+    public double getFifteenMinute() { return fifteenMinute; }
+
+    @Override
+    public String toString() {
+        return String.format("m1=%.2f/s, m5=%.2f/s, m15=%.2f/s", oneMinute, fiveMinute, fifteenMinute);
+    }
+}
@@ -0,0 +1,96 @@
+package singleton.ea;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Map;
+
+/**
+ * StatsD line protocol over UDP (DogStatsD-style "|#k:v" tags).
+ * Lines are packed into one reused buffer and sent as datagrams no larger than
+ * a typical MTU; UDP send never waits for the collector.
+ */
+public class StatsDExporter implements MetricsExporter {
+    // Stays under a 1500 byte Ethernet MTU after IP/UDP headers
+    private static final int MAX_PACKET = 1432;
+
+    private final DatagramChannel channel;
+    private final InetSocketAddress target;
+    private final ByteBuffer packet = ByteBuffer.allocateDirect(MAX_PACKET);
+    private final StringBuilder line = new StringBuilder(128);
+
+    public StatsDExporter(int port) throws IOException {
+        this.target = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        this.channel = DatagramChannel.open();
+        this.channel.configureBlocking(false);
+    }
+
+    @Override
+    public void export(MetricsSnapshot snapshot) throws IOException {
+        packet.clear();
+        // StatsD counters are deltas; cumulative totals have to go out as gauges
+        String countType = snapshot.getMode() == ExportMode.CUMULATIVE ? "g" : "c";
+        for (Map.Entry<MetricId, Long> e : snapshot.getCounters().entrySet()) {
+            write(e.getKey(), "", e.getValue(), countType);
+        }
+        for (Map.Entry<MetricId, Rates> e : snapshot.getRates().entrySet()) {
+            write(e.getKey(), ".m1_rate", e.getValue().getOneMinute(), "g");
+        }
+        for (Map.Entry<MetricId, HistogramSnapshot> e : snapshot.getHistograms().entrySet()) {
+            histogram(e.getKey(), e.getValue(), countType);
+        }
+        for (Map.Entry<MetricId, HistogramSnapshot> e : snapshot.getTimers().entrySet()) {
+            histogram(e.getKey(), e.getValue(), countType);
+        }
+        for (Map.Entry<MetricId, Double> e : snapshot.getGauges().entrySet()) {
+            write(e.getKey(), "", e.getValue(), "g");
+        }
+        send();
+    }
+
+    // StatsD has no pre-aggregated histogram type: ship the summary as gauges and a count
+    private void histogram(MetricId id, HistogramSnapshot h, String countType) throws IOException {
+        write(id, ".count", h.getCount(), countType);
+        write(id, ".p50", h.percentile(0.50), "g");
+        write(id, ".p99", h.percentile(0.99), "g");
+        write(id, ".max", h.getMax(), "g");
+    }
+
+    private void write(MetricId id, String suffix, double value, String type) throws IOException {
+        line.setLength(0);
+        line.append(id.getName()).append(suffix).append(':');
+        if (value == Math.rint(value)) line.append((long) value);
+        else line.append(value);
+        line.append('|').append(type);
+
+        Tags tags = id.getTags();
+        if (!tags.isEmpty()) {
+            line.append("|#");
+            for (int i = 0; i < tags.size(); i++) {
+                if (i > 0) line.append(',');
+                line.append(tags.key(i)).append(':').append(tags.value(i));
+            }
+        }
+        line.append('\n');
+
+        if (line.length() > packet.remaining()) send();
+        if (line.length() > packet.remaining()) return; // Single line larger than a packet
+        for (int i = 0; i < line.length(); i++) {
+            packet.put((byte) line.charAt(i)); // Names are expected to be ASCII
+        }
+    }
+
+    private void send() throws IOException {
+        if (packet.position() == 0) return;
+        packet.flip();
+        channel.send(packet, target); // Non-blocking: a full socket buffer drops the packet
+        packet.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,109 @@
+package singleton.ea;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Immutable set of key=value tags with a precomputed hash.
+ *
+ * Tags.of keeps a small direct-mapped cache keyed by the arguments as given, so a hot
+ * call site that repeats the same tags skips the sort and render and gets the same
+ * instance back. The cache has a fixed number of slots and a new tag set simply
+ * overwrites one, so one-off or rejected series never pin memory.
+ */
+public final class Tags {
+    public static final Tags EMPTY = new Tags(new String[0]);
+
+    private static final int CACHE_SLOTS = 1024;
+    private static final AtomicReferenceArray<Cached> CACHE = new AtomicReferenceArray<>(CACHE_SLOTS);
+
+    // Immutable, so a slot can be read without further synchronization
+    private static final class Cached {
+        final String[] arguments;
+        final Tags tags;
+
+        Cached(String[] arguments, Tags tags) {
+            this.arguments = arguments;
+            this.tags = tags;
+        }
+    }
+
+    // Sorted by key: [k0, v0, k1, v1, ...]
+    private final String[] keyValues;
+    private final int hash;
+    private final String rendered;
+
+    private Tags(String[] keyValues) {
+        this.keyValues = keyValues;
+        this.hash = Arrays.hashCode(keyValues);
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            if (i > 0) sb.append(',');
+            sb.append(keyValues[i]).append('=').append(keyValues[i + 1]);
+        }
+        this.rendered = sb.toString();
+    }
+
+    /**
+     * @param keyValues alternating keys and values, e.g. ("route", "/orders", "status", "200")
+     */
+    public static Tags of(String... keyValues) {
+        if (keyValues.length == 0) return EMPTY;
+        if (keyValues.length % 2 != 0) {
+            throw new IllegalArgumentException("Tags need key/value pairs");
+        }
+
+        int h = Arrays.hashCode(keyValues);
+        int slot = (h ^ (h >>> 16)) & (CACHE_SLOTS - 1);
+        Cached cached = CACHE.get(slot);
+        if (cached != null && Arrays.equals(cached.arguments, keyValues)) return cached.tags;
+
+        String[][] pairs = new String[keyValues.length / 2][];
+        for (int i = 0; i < pairs.length; i++) {
+            pairs[i] = new String[]{keyValues[2 * i], keyValues[2 * i + 1]};
+        }
+        Arrays.sort(pairs, (a, b) -> a[0].compareTo(b[0]));
+
+        String[] sorted = new String[keyValues.length];
+        for (int i = 0; i < pairs.length; i++) {
+            if (i > 0 && pairs[i][0].equals(pairs[i - 1][0])) {
+                throw new IllegalArgumentException("Duplicate tag key: " + pairs[i][0]);
+            }
+            sorted[2 * i] = pairs[i][0];
+            sorted[2 * i + 1] = pairs[i][1];
+        }
+
+        Tags tags = new Tags(sorted);
+        // Copied: the caller may reuse its array
+        CACHE.set(slot, new Cached(keyValues.clone(), tags));
+        return tags;
+    }
+
+    public boolean isEmpty() {
+        return keyValues.length == 0;
+    }
+
+    // Index-based access so exporters can render tags without allocating
+    public int size() { return keyValues.length / 2; }
+    public String key(int i) { return keyValues[2 * i]; }
+    public String value(int i) { return keyValues[2 * i + 1]; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Tags)) return false;
+        return Arrays.equals(keyValues, ((Tags) o).keyValues);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    // Rendered once at construction, e.g. "route=/orders,status=200"
+    @Override
+    public String toString() {
+        return rendered;
+    }
+}
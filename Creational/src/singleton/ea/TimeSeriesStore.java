@@ -0,0 +1,326 @@
+package singleton.ea;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Embedded history for MetricsRegistry: registered as an exporter, it keeps every
+ * flushed value in Gorilla-compressed, memory-mapped segment files.
+ *
+ * Segment file (tsdb-{startMillis}-{seq}.seg), fixed capacity, zero-filled:
+ *   header: [int magic][int version][long startMillis][long minTs][long maxTs][int tail]
+ *   chunks: DEFINE [byte 0][int seriesId][short len][utf8 name]
+ *           DATA   [byte 1][int seriesId][int pointCount][int payloadBytes][gorilla bits]
+ * A DATA chunk's pointCount is bumped after each point, so a reader never decodes a
+ * half-written point. Each segment covers a fixed time span; whole segments are deleted
+ * once they are older than the retention period.
+ */
+public class TimeSeriesStore implements MetricsExporter {
+    private static final int MAGIC = 0x54534442; // "TSDB"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int OFF_MIN_TS = 8;
+    private static final int OFF_MAX_TS = 16;
+    private static final int OFF_TAIL = 24;
+    private static final byte DEFINE = 0;
+    private static final byte DATA = 1;
+    private static final int DATA_HEADER_BYTES = 13;
+    private static final int CHUNK_PAYLOAD_BYTES = 1024;
+
+    public enum Aggregation { AVG, MIN, MAX, SUM, LAST, COUNT }
+
+    public static class Point {
+        private final long timestamp;
+        private final double value;
+
+        Point(long timestamp, double value) {
+            this.timestamp = timestamp;
+            this.value = value;
+        }
+
+        public long getTimestamp() { return timestamp; }
+        public double getValue() { return value; }
+
+        @Override
+        public String toString() {
+            return timestamp + "=" + value;
+        }
+    }
+
+    private final Path directory;
+    private final long segmentDurationMs;
+    private final long retentionMs;
+    private final int segmentBytes;
+    private final List<Segment> segments = new ArrayList<>();
+    private Segment active;
+    private int nextSeq;
+
+    public TimeSeriesStore(Path directory, long segmentDurationMs, long retentionMs,
+                           int segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentDurationMs = segmentDurationMs;
+        this.retentionMs = retentionMs;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+
+        // Existing segments stay read-only; new points always go to a fresh segment
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "tsdb-*.seg")) {
+            for (Path file : files) {
+                Segment segment = Segment.open(file);
+                segments.add(segment);
+                nextSeq = Math.max(nextSeq, segment.seq + 1);
+            }
+        }
+        segments.sort((a, b) -> Long.compare(a.startMillis, b.startMillis));
+    }
+
+    @Override
+    public synchronized void export(MetricsSnapshot snapshot) throws IOException {
+        long ts = snapshot.getTimestampMillis();
+        snapshot.getCounters().forEach((id, v) -> appendUnchecked(id.toString(), ts, v));
+        snapshot.getRates().forEach((id, r) -> appendUnchecked(id + ".m1_rate", ts, r.getOneMinute()));
+        snapshot.getGauges().forEach((id, v) -> appendUnchecked(id.toString(), ts, v));
+        snapshot.getHistograms().forEach((id, h) -> appendHistogram(id.toString(), ts, h));
+        snapshot.getTimers().forEach((id, h) -> appendHistogram(id.toString(), ts, h));
+        enforceRetention(ts);
+    }
+
+    public synchronized void append(String series, long timestamp, double value) throws IOException {
+        if (active == null || timestamp >= active.startMillis + segmentDurationMs) {
+            roll(timestamp - Math.floorMod(timestamp, segmentDurationMs));
+        }
+        if (!active.append(series, timestamp, value)) {
+            roll(active.startMillis); // Segment full before its time span ended
+            if (!active.append(series, timestamp, value)) {
+                throw new IOException("Segment size too small for a single chunk");
+            }
+        }
+    }
+
+    public synchronized List<Point> query(String series, long fromMillis, long toMillis) {
+        List<Point> points = new ArrayList<>();
+        for (Segment segment : segments) {
+            if (segment.maxTs() < fromMillis || segment.minTs() > toMillis) continue;
+            segment.read(series, fromMillis, toMillis, points);
+        }
+        return points;
+    }
+
+    /**
+     * Aggregates the range into fixed buckets of stepMillis; each result point is stamped
+     * with its bucket start. Empty buckets are omitted.
+     */
+    public synchronized List<Point> downsample(String series, long fromMillis, long toMillis,
+                                               long stepMillis, Aggregation aggregation) {
+        List<Point> result = new ArrayList<>();
+        long bucket = Long.MIN_VALUE;
+        double acc = 0;
+        long n = 0;
+
+        for (Point p : query(series, fromMillis, toMillis)) {
+            long start = p.timestamp - Math.floorMod(p.timestamp - fromMillis, stepMillis);
+            if (start != bucket) {
+                if (n > 0) result.add(new Point(bucket, finish(aggregation, acc, n)));
+                bucket = start;
+                acc = aggregation == Aggregation.MIN ? Double.POSITIVE_INFINITY
+                        : aggregation == Aggregation.MAX ? Double.NEGATIVE_INFINITY : 0;
+                n = 0;
+            }
+            switch (aggregation) {
+                case MIN: acc = Math.min(acc, p.value); break;
+                case MAX: acc = Math.max(acc, p.value); break;
+                case LAST: acc = p.value; break;
+                default: acc += p.value; break;
+            }
+            n++;
+        }
+        if (n > 0) result.add(new Point(bucket, finish(aggregation, acc, n)));
+        return result;
+    }
+
+    private static double finish(Aggregation aggregation, double acc, long n) {
+        switch (aggregation) {
+            case AVG: return acc / n;
+            case COUNT: return n;
+            default: return acc;
+        }
+    }
+
+    // Deletes whole segments whose newest point is older than the retention period
+    public synchronized void enforceRetention(long nowMillis) throws IOException {
+        long cutoff = nowMillis - retentionMs;
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            Segment segment = segments.get(i);
+            if (segment != active && segment.maxTs() < cutoff) {
+                segments.remove(i);
+                segment.close();
+                Files.deleteIfExists(segment.file);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments) segment.close();
+    }
+
+    private void appendHistogram(String name, long ts, HistogramSnapshot h) {
+        appendUnchecked(name + ".count", ts, h.getCount());
+        appendUnchecked(name + ".p50", ts, h.percentile(0.50));
+        appendUnchecked(name + ".p99", ts, h.percentile(0.99));
+        appendUnchecked(name + ".max", ts, h.getMax());
+    }
+
+    private void appendUnchecked(String series, long ts, double value) {
+        try {
+            append(series, ts, value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void roll(long startMillis) throws IOException {
+        if (active != null) active.buffer.force();
+        Path file = directory.resolve("tsdb-" + startMillis + "-" + nextSeq + ".seg");
+        active = Segment.create(file, startMillis, nextSeq++, segmentBytes);
+        segments.add(active);
+    }
+
+    private static class Segment {
+        final Path file;
+        final long startMillis;
+        final int seq;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        // Writer state, only used on the active segment
+        final Map<String, Integer> seriesIds = new HashMap<>();
+        final Map<Integer, ChunkWriter> writers = new HashMap<>();
+
+        private Segment(Path file, long startMillis, int seq, FileChannel channel, MappedByteBuffer buffer) {
+            this.file = file;
+            this.startMillis = startMillis;
+            this.seq = seq;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        static Segment create(Path file, long startMillis, int seq, int size) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putLong(OFF_MIN_TS, Long.MAX_VALUE);
+            buffer.putLong(OFF_MAX_TS, Long.MIN_VALUE);
+            buffer.putInt(OFF_TAIL, HEADER_BYTES);
+            return new Segment(file, startMillis, seq, channel, buffer);
+        }
+
+        static Segment open(Path file) throws IOException {
+            String name = file.getFileName().toString();
+            String[] parts = name.substring(5, name.length() - 4).split("-");
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC) throw new IOException("Not a segment file: " + file);
+            return new Segment(file, Long.parseLong(parts[0]), Integer.parseInt(parts[1]), channel, buffer);
+        }
+
+        long minTs() { return buffer.getLong(OFF_MIN_TS); }
+        long maxTs() { return buffer.getLong(OFF_MAX_TS); }
+
+        boolean append(String series, long timestamp, double value) {
+            Integer id = seriesIds.get(series);
+            if (id == null) {
+                byte[] bytes = series.getBytes(StandardCharsets.UTF_8);
+                int at = allocate(1 + 4 + 2 + bytes.length);
+                if (at < 0) return false;
+                id = seriesIds.size();
+                buffer.put(at, DEFINE);
+                buffer.putInt(at + 1, id);
+                buffer.putShort(at + 5, (short) bytes.length);
+                buffer.put(at + 7, bytes);
+                seriesIds.put(series, id);
+            }
+
+            ChunkWriter writer = writers.get(id);
+            if (writer == null || !writer.encoder.hasRoom()) {
+                int at = allocate(DATA_HEADER_BYTES + CHUNK_PAYLOAD_BYTES);
+                if (at < 0) return false;
+                buffer.put(at, DATA);
+                buffer.putInt(at + 1, id);
+                buffer.putInt(at + 9, CHUNK_PAYLOAD_BYTES);
+                writer = new ChunkWriter(at, new GorillaEncoder(buffer, at + DATA_HEADER_BYTES, CHUNK_PAYLOAD_BYTES));
+                writers.put(id, writer);
+            }
+
+            writer.encoder.append(timestamp, value);
+            buffer.putInt(writer.headerOffset + 5, writer.encoder.getCount()); // Commit point
+            if (timestamp < minTs()) buffer.putLong(OFF_MIN_TS, timestamp);
+            if (timestamp > maxTs()) buffer.putLong(OFF_MAX_TS, timestamp);
+            return true;
+        }
+
+        private int allocate(int bytes) {
+            int tail = buffer.getInt(OFF_TAIL);
+            if (tail + bytes > buffer.capacity()) return -1;
+            buffer.putInt(OFF_TAIL, tail + bytes);
+            return tail;
+        }
+
+        void read(String series, long from, long to, List<Point> out) {
+            Map<Integer, String> names = new HashMap<>();
+            int pos = HEADER_BYTES;
+            int tail = buffer.getInt(OFF_TAIL);
+            while (pos < tail) {
+                byte type = buffer.get(pos);
+                int id = buffer.getInt(pos + 1);
+                if (type == DEFINE) {
+                    int length = buffer.getShort(pos + 5);
+                    byte[] bytes = new byte[length];
+                    buffer.get(pos + 7, bytes);
+                    names.put(id, new String(bytes, StandardCharsets.UTF_8));
+                    pos += 7 + length;
+                } else {
+                    int count = buffer.getInt(pos + 5);
+                    int payload = buffer.getInt(pos + 9);
+                    if (series.equals(names.get(id))) {
+                        GorillaDecoder decoder = new GorillaDecoder(buffer, pos + DATA_HEADER_BYTES);
+                        for (int i = 0; i < count; i++) {
+                            decoder.next();
+                            long ts = decoder.getTimestamp();
+                            if (ts >= from && ts <= to) out.add(new Point(ts, decoder.getValue()));
+                        }
+                    }
+                    pos += DATA_HEADER_BYTES + payload;
+                }
+            }
+        }
+
+        void close() throws IOException {
+            if (channel.isOpen()) {
+                if (!buffer.isReadOnly()) buffer.force();
+                channel.close(); // The mapping itself is released when the buffer is collected
+            }
+        }
+    }
+
+    private static class ChunkWriter {
+        final int headerOffset;
+        final GorillaEncoder encoder;
+
+        ChunkWriter(int headerOffset, GorillaEncoder encoder) {
+            this.headerOffset = headerOffset;
+            this.encoder = encoder;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package singleton.ea;
+
+/**
+ * Histogram of durations in nanoseconds. Use start()/stop(start) on hot paths:
+ * it only passes a primitive around and never allocates.
+ */
+public class Timer {
+    private final Histogram histogram = new Histogram();
+
+    public long start() {
+        return System.nanoTime();
+    }
+
+    public void stop(long startNanos) {
+        histogram.record(System.nanoTime() - startNanos);
+    }
+
+    public void record(long durationNanos) {
+        histogram.record(durationNanos);
+    }
+
+    public void time(Runnable task) {
+        long start = start();
+        try {
+            task.run();
+        } finally {
+            stop(start);
+        }
+    }
+
+    public HistogramSnapshot snapshot() {
+        return histogram.snapshot();
+    }
+
+    HistogramSnapshot snapshotAndReset() {
+        return histogram.snapshotAndReset();
+    }
+}
@@ -1,59 +1,97 @@
 package singleton.eb;
 
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 // The Singleton is an Enum
 enum ConnectionPool {
     INSTANCE;
 
+    private static final int MIN_CONN = 1;
     private static final int MAX_CONN = 3; // Small limit for demo
-    private final BlockingQueue<String> pool;
+    private final AtomicInteger created = new AtomicInteger();
+    private final ObjectPool<String> pool = ObjectPool.builder(() -> "Connection-" + created.incrementAndGet())
+            .minSize(MIN_CONN)
+            .maxSize(MAX_CONN)
+            .idleTimeout(3, TimeUnit.SECONDS)
+            .leakDetectionThreshold(5, TimeUnit.SECONDS)
+            .longHoldThreshold(500, TimeUnit.MILLISECONDS)
+            .build();
 
-    ConnectionPool() {
-        pool = new ArrayBlockingQueue<>(MAX_CONN);
-        for (int i = 1; i <= MAX_CONN; i++) pool.offer("Connection-" + i);
+    public ObjectPool.PooledObject<String> borrow() throws InterruptedException {
+        // Blocks up to 2 seconds waiting for a resource, then throws PoolExhaustedException
+        return pool.borrow(2, TimeUnit.SECONDS);
     }
 
-    public String borrow() throws InterruptedException {
-        // Blocks up to 2 seconds waiting for a resource
-        String conn = pool.poll(2, TimeUnit.SECONDS);
-        if (conn == null) throw new RuntimeException("Pool Exhausted!");
-        return conn;
+    // Non-blocking variant: completes when a connection frees up, or fails after 2 seconds
+    public CompletableFuture<ObjectPool.PooledObject<String>> acquire() {
+        return pool.acquire(2, TimeUnit.SECONDS);
     }
 
-    public void release(String conn) {
-        pool.offer(conn); // Returns to queue
+    public int size() {
+        return pool.getTotalCount();
+    }
+
+    public PoolStats stats() {
+        return pool.getStats();
+    }
+
+    public void release(ObjectPool.PooledObject<String> conn) {
+        conn.close(); // Hands it to a waiter, or back to the pool
     }
 }
 
 // Wrapper class to run the demo
 public class ConnectionPoolDemo {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
         ExecutorService server = Executors.newCachedThreadPool();
 
-        // We launch 6 requests, but pool size is only 3.
-        // 3 will succeed immediately, 3 will block.
+        // We launch 6 requests; the pool starts with 1 connection and grows to at most 3.
+        // 3 will succeed quickly, 3 will wait for a release.
         for (int i = 1; i <= 6; i++) {
             final int id = i;
             server.submit(() -> {
                 try {
                     System.out.println("Req " + id + " waiting...");
-                    String conn = ConnectionPool.INSTANCE.borrow();
+                    ObjectPool.PooledObject<String> conn = ConnectionPool.INSTANCE.borrow();
 
-                    System.out.println("Req " + id + " ACQUIRED " + conn);
+                    String name = conn.get();
+                    System.out.println("Req " + id + " ACQUIRED " + name);
                     Thread.sleep(1000); // Hold connection
 
                     ConnectionPool.INSTANCE.release(conn);
-                    System.out.println("Req " + id + " RELEASED " + conn);
+                    System.out.println("Req " + id + " RELEASED " + name);
                 } catch (Exception e) {
                     System.err.println("Req " + id + " FAILED: " + e.getMessage());
                 }
             });
         }
         server.shutdown();
+        server.awaitTermination(5, TimeUnit.SECONDS);
+
+        // Async acquire: no thread is parked while waiting for a connection
+        ConnectionPool.INSTANCE.acquire()
+                .thenAccept(conn -> {
+                    System.out.println("Async ACQUIRED " + conn.get());
+                    ConnectionPool.INSTANCE.release(conn);
+                })
+                .join();
+
+        System.out.println("Pool size after burst: " + ConnectionPool.INSTANCE.size());
+        System.out.println("Stats: " + ConnectionPool.INSTANCE.stats());
+        Thread.sleep(5000); // Idle connections above the minimum are evicted
+        System.out.println("Pool size after idle period: " + ConnectionPool.INSTANCE.size());
+
+        // A stale close must not return a connection that has since been lent out again
+        ObjectPool.PooledObject<String> first = ConnectionPool.INSTANCE.borrow();
+        ConnectionPool.INSTANCE.release(first);
+        ObjectPool.PooledObject<String> second = ConnectionPool.INSTANCE.borrow();
+        ConnectionPool.INSTANCE.release(first);
+        System.out.println("After stale close: " + second.get() + " still held, idle=" +
+                ConnectionPool.INSTANCE.stats().getIdle());
+        ConnectionPool.INSTANCE.release(second);
     }
 }
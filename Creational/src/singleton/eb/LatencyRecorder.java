@@ -0,0 +1,39 @@
+package singleton.eb;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The pool's own wait/hold time recorder, so singleton.eb does not depend on the metrics
+ * package. Values go into power-of-two buckets of LongAdders: record() never locks or
+ * allocates, and percentiles are reported within a factor of two, clamped to the max.
+ */
+class LatencyRecorder {
+    static final int BUCKETS = 64;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    LatencyRecorder() {
+        for (int i = 0; i < BUCKETS; i++) counts[i] = new LongAdder();
+    }
+
+    void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts[bucket(nanos)].increment();
+        sum.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    LatencySnapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) copy[i] = counts[i].sum();
+        return new LatencySnapshot(copy, sum.sum(), max.get());
+    }
+
+    // Bucket i holds values in [2^(i-1), 2^i); bucket 0 holds only 0
+    static int bucket(long value) {
+        return 64 - Long.numberOfLeadingZeros(value);
+    }
+}
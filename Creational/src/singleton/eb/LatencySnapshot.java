@@ -0,0 +1,46 @@
+package singleton.eb;
+
+/**
+ * Immutable copy of a pool latency recorder, in nanoseconds.
+ */
+public class LatencySnapshot {
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    LatencySnapshot(long[] counts, long sum, long max) {
+        this.counts = counts;
+        this.sum = sum;
+        this.max = max;
+        long total = 0;
+        for (long c : counts) total += c;
+        this.count = total;
+    }
+
+    public long getCount() { return count; }
+    public long getSum() { return sum; }
+    public long getMax() { return max; }
+    public double getMean() { return count == 0 ? 0 : (double) sum / count; }
+
+    // Upper bound of the bucket holding the given quantile (0.0 - 1.0), never above the max
+    public long percentile(double quantile) {
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                long upper = i == 0 ? 0 : i == 63 ? Long.MAX_VALUE : (1L << i) - 1;
+                return Math.min(max, upper);
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count + ", mean=" + Math.round(getMean()) +
+                ", p50=" + percentile(0.50) + ", p99=" + percentile(0.99) + ", max=" + max;
+    }
+}
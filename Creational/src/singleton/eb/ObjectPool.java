@@ -0,0 +1,524 @@
+package singleton.eb;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generic, elastic pool that avoids a central lock on the borrow/release path.
+ *
+ * A borrow first tries the resources this thread released recently, then scans the
+ * shared list claiming an entry with a CAS on its state. If nothing is free it joins a
+ * FIFO queue of waiting futures and, while the pool is below maxSize, asks the creator
+ * thread for one more resource. A release hands the resource straight to the oldest
+ * waiter, otherwise it flips the state back and remembers the entry thread-locally.
+ * While anyone is queued, new borrowers skip the fast path so they cannot barge ahead.
+ *
+ * Every borrow gets its own PooledObject lease. Closing a lease twice, or closing a stale
+ * lease after the resource was lent out again, does nothing.
+ *
+ * Nothing here holds a monitor while waiting: threads only park inside
+ * CompletableFuture, so virtual threads never pin their carrier.
+ *
+ * A daemon housekeeper shrinks the pool back towards minSize once resources have been
+ * idle for idleTimeout, and reports resources held for too long (leaks).
+ *
+ * Wait and hold times, timeouts and exhaustion are always recorded; getStats() reads them
+ * together with the current gauges.
+ */
+public class ObjectPool<T> implements AutoCloseable {
+    static final int NOT_IN_USE = 0;
+    static final int IN_USE = 1;
+    static final int REMOVED = -1;
+    static final int RESERVED = -2;
+    private static final int RECENT_MAX = 16;
+    private static final int LONG_HOLDS_KEPT = 16;
+
+    // One borrow of a pooled resource; only the first close() returns it
+    public static final class PooledObject<T> implements AutoCloseable {
+        private final ObjectPool<T> pool;
+        final Entry<T> entry;
+        final long borrowedAtNanos;
+        final Throwable borrowSite;
+        final String borrower;
+        volatile boolean leakReported;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        PooledObject(ObjectPool<T> pool, Entry<T> entry, Throwable borrowSite, String borrower) {
+            this.pool = pool;
+            this.entry = entry;
+            this.borrowedAtNanos = System.nanoTime();
+            this.borrowSite = borrowSite;
+            this.borrower = borrower;
+        }
+
+        public T get() {
+            if (released.get()) throw new IllegalStateException("Resource was returned to the pool");
+            return entry.resource;
+        }
+
+        // Returns the resource to the pool; the lease must not be used afterwards
+        @Override
+        public void close() { pool.release(this); }
+
+        boolean markReleased() {
+            return released.compareAndSet(false, true);
+        }
+    }
+
+    // A pooled resource and its state, shared by all of its leases over time
+    static final class Entry<T> {
+        final T resource;
+        final AtomicInteger state = new AtomicInteger(NOT_IN_USE);
+        volatile long lastReleasedNanos = System.nanoTime();
+        // Current lease while IN_USE, for leak detection
+        volatile PooledObject<T> lease;
+
+        Entry(T resource) {
+            this.resource = resource;
+        }
+    }
+
+    private static final class Waiter<T> {
+        final CompletableFuture<PooledObject<T>> future = new CompletableFuture<>();
+        final Throwable site;
+        final String thread;
+
+        Waiter(Throwable site, String thread) {
+            this.site = site;
+            this.thread = thread;
+        }
+    }
+
+    private final ResourceFactory<T> factory;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutNanos;
+    private final long leakThresholdNanos;
+    private final boolean validateOnBorrow;
+    private final boolean threadLocalCache;
+    private final long longHoldNanos;
+
+    // Copy-on-write: scans never lock, and writes only happen when resources come and go
+    private final CopyOnWriteArrayList<Entry<T>> shared = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<ArrayList<Entry<T>>> recent = ThreadLocal.withInitial(ArrayList::new);
+    private final ConcurrentLinkedQueue<Waiter<T>> waitQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger pendingCreates = new AtomicInteger();
+
+    private final LatencyRecorder waitTime = new LatencyRecorder();
+    private final LatencyRecorder holdTime = new LatencyRecorder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder exhaustions = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder destroyed = new LongAdder();
+    private final AtomicReferenceArray<PoolStats.LongHold> longHolds = new AtomicReferenceArray<>(LONG_HOLDS_KEPT);
+    private final AtomicLong longHoldCursor = new AtomicLong();
+    private final ScheduledThreadPoolExecutor housekeeper;
+    private final ExecutorService creator;
+    private volatile boolean closed;
+
+    private ObjectPool(Builder<T> builder) {
+        this.factory = builder.factory;
+        this.minSize = builder.minSize;
+        this.maxSize = builder.maxSize;
+        this.idleTimeoutNanos = builder.idleTimeoutNanos;
+        this.leakThresholdNanos = builder.leakThresholdNanos;
+        this.validateOnBorrow = builder.validateOnBorrow;
+        this.threadLocalCache = builder.threadLocalCache;
+        this.longHoldNanos = builder.longHoldNanos;
+
+        this.housekeeper = new ScheduledThreadPoolExecutor(1, r -> daemon(r, "pool-housekeeper"));
+        // Borrow timeouts are cancelled as soon as a waiter is served; drop them from the
+        // queue right away instead of holding the waiter until the timeout would have fired
+        housekeeper.setRemoveOnCancelPolicy(true);
+        this.creator = Executors.newSingleThreadExecutor(r -> daemon(r, "pool-creator"));
+        while (total.get() < minSize && addResource()) { }
+        housekeeper.scheduleWithFixedDelay(this::housekeep,
+                builder.housekeepingMillis, builder.housekeepingMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+
+    public static <T> Builder<T> builder(ResourceFactory<T> factory) {
+        return new Builder<>(factory);
+    }
+
+    public PooledObject<T> borrow(long timeout, TimeUnit unit) throws InterruptedException {
+        long start = System.nanoTime();
+        PooledObject<T> lease = tryBorrow();
+        if (lease != null) {
+            waitTime.record(System.nanoTime() - start);
+            return lease;
+        }
+
+        CompletableFuture<PooledObject<T>> future = enqueue(start, timeout, unit);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            // Lost the race if a resource was already handed over: give it back
+            if (!future.cancel(false)) future.thenAccept(PooledObject::close);
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Non-blocking acquire. The future completes with PoolExhaustedException after the
+     * timeout; cancelling it withdraws the request.
+     */
+    public CompletableFuture<PooledObject<T>> acquire(long timeout, TimeUnit unit) {
+        long start = System.nanoTime();
+        PooledObject<T> lease = tryBorrow();
+        if (lease == null) return enqueue(start, timeout, unit);
+        waitTime.record(System.nanoTime() - start);
+        return CompletableFuture.completedFuture(lease);
+    }
+
+    void release(PooledObject<T> lease) {
+        if (!lease.markReleased()) return; // Double or stale close
+
+        // This lease still owns the entry until the state flips back to NOT_IN_USE
+        Entry<T> entry = lease.entry;
+        long now = System.nanoTime();
+        long held = now - lease.borrowedAtNanos;
+        entry.lease = null;
+        entry.lastReleasedNanos = now;
+        if (!entry.state.compareAndSet(IN_USE, NOT_IN_USE)) return;
+
+        holdTime.record(held);
+        if (longHoldNanos > 0 && held > longHoldNanos) {
+            PoolStats.LongHold hold = new PoolStats.LongHold(String.valueOf(entry.resource), lease.borrower,
+                    held, lease.borrowSite);
+            longHolds.set((int) (longHoldCursor.getAndIncrement() % LONG_HOLDS_KEPT), hold);
+        }
+
+        if (closed) {
+            if (entry.state.compareAndSet(NOT_IN_USE, RESERVED)) remove(entry);
+            return;
+        }
+        if (offerToWaiters(entry)) return;
+
+        if (threadLocalCache) {
+            ArrayList<Entry<T>> mine = recent.get();
+            if (mine.size() < RECENT_MAX) mine.add(entry);
+        }
+    }
+
+    public int getTotalCount() { return total.get(); }
+
+    public int getWaiterCount() { return waiting.get(); }
+
+    public int getIdleCount() {
+        int idle = 0;
+        for (Entry<T> entry : shared) {
+            if (entry.state.get() == NOT_IN_USE) idle++;
+        }
+        return idle;
+    }
+
+    public PoolStats getStats() {
+        long next = longHoldCursor.get();
+        List<PoolStats.LongHold> holds = new ArrayList<>();
+        for (long i = Math.max(0, next - LONG_HOLDS_KEPT); i < next; i++) {
+            PoolStats.LongHold hold = longHolds.get((int) (i % LONG_HOLDS_KEPT));
+            if (hold != null) holds.add(hold);
+        }
+        return new PoolStats(total.get(), getIdleCount(), waiting.get(), minSize, maxSize,
+                waitTime.snapshot(), holdTime.snapshot(), timeouts.sum(), exhaustions.sum(),
+                created.sum(), destroyed.sum(), holds);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        creator.shutdownNow();
+        Waiter<T> waiter;
+        while ((waiter = waitQueue.poll()) != null) {
+            waiter.future.completeExceptionally(new IllegalStateException("Pool is closed"));
+        }
+        // In-use resources are destroyed when they are released
+        for (Entry<T> entry : shared) {
+            if (entry.state.compareAndSet(NOT_IN_USE, RESERVED)) remove(entry);
+        }
+    }
+
+    // Fast path; skipped while others are queued so waiters are served in arrival order
+    private PooledObject<T> tryBorrow() {
+        if (closed) throw new IllegalStateException("Pool is closed");
+        if (waiting.get() > 0) return null;
+
+        if (threadLocalCache) {
+            ArrayList<Entry<T>> mine = recent.get();
+            for (int i = mine.size() - 1; i >= 0; i--) {
+                PooledObject<T> lease = claim(mine.remove(i), null, null);
+                if (lease != null) return lease;
+            }
+        }
+        return scanShared(null, null);
+    }
+
+    private PooledObject<T> scanShared(Throwable site, String thread) {
+        for (Entry<T> entry : shared) {
+            PooledObject<T> lease = claim(entry, site, thread);
+            if (lease != null) return lease;
+        }
+        return null;
+    }
+
+    private PooledObject<T> claim(Entry<T> entry, Throwable site, String thread) {
+        if (!entry.state.compareAndSet(NOT_IN_USE, IN_USE)) return null;
+        if (!isUsable(entry)) return null;
+        return lend(entry, site, thread);
+    }
+
+    private CompletableFuture<PooledObject<T>> enqueue(long start, long timeout, TimeUnit unit) {
+        Waiter<T> waiter = new Waiter<>(leakThresholdNanos > 0 ? borrowSite() : null,
+                Thread.currentThread().getName());
+        waitQueue.add(waiter);
+        waiting.incrementAndGet();
+        waiter.future.whenComplete((entry, error) -> {
+            waiting.decrementAndGet();
+            if (error == null) waitTime.record(System.nanoTime() - start);
+            else if (error instanceof PoolExhaustedException) timeouts.increment();
+            // Served waiters were already polled; expired or cancelled ones are unlinked here
+            if (error != null) waitQueue.remove(waiter);
+        });
+
+        // A release that ran just before we were queued saw no waiter: look once more
+        PooledObject<T> lease = scanShared(waiter.site, waiter.thread);
+        if (lease != null) {
+            if (waiter.future.complete(lease)) waitQueue.remove(waiter);
+            else release(lease);
+            return waiter.future;
+        }
+
+        if (!requestCreate() && total.get() + pendingCreates.get() >= maxSize) exhaustions.increment();
+        ScheduledFuture<?> expiry = housekeeper.schedule(() -> {
+            waiter.future.completeExceptionally(new PoolExhaustedException("Pool Exhausted!"));
+        }, timeout, unit);
+        waiter.future.whenComplete((e, error) -> expiry.cancel(false));
+        return waiter.future;
+    }
+
+    // Called with the entry NOT_IN_USE; true if a waiter (or a racing borrower) took it
+    private boolean offerToWaiters(Entry<T> entry) {
+        while (waiting.get() > 0) {
+            if (!entry.state.compareAndSet(NOT_IN_USE, IN_USE)) return true;
+            if (!isUsable(entry)) return true;
+
+            Waiter<T> waiter;
+            while ((waiter = waitQueue.poll()) != null) {
+                if (waiter.future.isDone()) continue;
+                if (waiter.future.complete(lend(entry, waiter.site, waiter.thread))) return true;
+            }
+            // Queue drained while the count catches up with completed waiters
+            entry.lease = null;
+            entry.state.set(NOT_IN_USE);
+            Thread.onSpinWait();
+        }
+        return false;
+    }
+
+    // Discards a claimed entry that fails validation and asks for a replacement
+    private boolean isUsable(Entry<T> entry) {
+        if (!validateOnBorrow) return true;
+        boolean valid;
+        try {
+            valid = factory.validate(entry.resource);
+        } catch (RuntimeException e) {
+            valid = false;
+        }
+        if (!valid) {
+            remove(entry);
+            requestCreate();
+        }
+        return valid;
+    }
+
+    // Called with the entry claimed (IN_USE); site and thread are the waiter's when a
+    // releasing thread hands the entry over
+    private PooledObject<T> lend(Entry<T> entry, Throwable site, String thread) {
+        String borrower = longHoldNanos > 0 ? (thread != null ? thread : Thread.currentThread().getName()) : null;
+        Throwable borrowSite = leakThresholdNanos > 0 ? (site != null ? site : borrowSite()) : null;
+        PooledObject<T> lease = new PooledObject<>(this, entry, borrowSite, borrower);
+        entry.lease = lease;
+        return lease;
+    }
+
+    private static Throwable borrowSite() {
+        return new Throwable("Borrowed by " + Thread.currentThread().getName());
+    }
+
+    // One creation in flight per unserved waiter, never beyond maxSize; true if one was started
+    private boolean requestCreate() {
+        while (!closed) {
+            int pending = pendingCreates.get();
+            if (total.get() + pending >= maxSize) return false;
+            if (pending >= Math.max(waiting.get(), minSize - total.get())) return false;
+            if (pendingCreates.compareAndSet(pending, pending + 1)) break;
+        }
+        if (closed) return false;
+        creator.execute(() -> {
+            try {
+                addResource();
+            } finally {
+                pendingCreates.decrementAndGet();
+            }
+        });
+        return true;
+    }
+
+    private boolean addResource() {
+        if (closed) return false;
+        if (total.incrementAndGet() > maxSize) {
+            total.decrementAndGet();
+            return false;
+        }
+        Entry<T> entry;
+        try {
+            entry = new Entry<>(factory.create());
+        } catch (Exception e) {
+            // Retried by the next housekeeping run
+            total.decrementAndGet();
+            System.err.println("[ObjectPool] Failed to create resource: " + e);
+            return false;
+        }
+        created.increment();
+        shared.add(entry);
+        offerToWaiters(entry);
+        return true;
+    }
+
+    private void remove(Entry<T> entry) {
+        entry.state.set(REMOVED);
+        if (shared.remove(entry)) {
+            total.decrementAndGet();
+            destroyed.increment();
+        }
+        try {
+            factory.destroy(entry.resource);
+        } catch (RuntimeException e) {
+            System.err.println("[ObjectPool] Failed to destroy resource: " + e);
+        }
+    }
+
+    private void housekeep() {
+        long now = System.nanoTime();
+        for (Entry<T> entry : shared) {
+            int state = entry.state.get();
+            PooledObject<T> lease = entry.lease;
+            if (state == IN_USE && lease != null && lease.borrowSite != null && !lease.leakReported
+                    && now - lease.borrowedAtNanos > leakThresholdNanos) {
+                lease.leakReported = true;
+                System.err.println("[ObjectPool] Possible leak: " + entry.resource + " held for "
+                        + TimeUnit.NANOSECONDS.toMillis(now - lease.borrowedAtNanos) + "ms");
+                lease.borrowSite.printStackTrace();
+            } else if (state == NOT_IN_USE && idleTimeoutNanos > 0 && total.get() > minSize
+                    && now - entry.lastReleasedNanos > idleTimeoutNanos
+                    && entry.state.compareAndSet(NOT_IN_USE, RESERVED)) {
+                // Shrink after a burst, one resource at a time, never below minSize
+                remove(entry);
+            }
+        }
+        // Top up to minSize, and retry creations that failed while borrowers wait
+        requestCreate();
+    }
+
+    public static class Builder<T> {
+        private final ResourceFactory<T> factory;
+        private int minSize = 0;
+        private int maxSize = 10;
+        private long idleTimeoutNanos = TimeUnit.MINUTES.toNanos(10);
+        private long leakThresholdNanos;
+        private boolean validateOnBorrow = true;
+        private boolean threadLocalCache = true;
+        private long housekeepingMillis = 1000;
+        private long longHoldNanos;
+
+        private Builder(ResourceFactory<T> factory) {
+            this.factory = factory;
+        }
+
+        // Fixed-size pool
+        public Builder<T> size(int size) {
+            this.minSize = size;
+            this.maxSize = size;
+            return this;
+        }
+
+        // Resources kept even when idle
+        public Builder<T> minSize(int minSize) {
+            this.minSize = minSize;
+            return this;
+        }
+
+        // Upper bound the pool grows to while borrowers are waiting
+        public Builder<T> maxSize(int maxSize) {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        // Resources idle for longer are destroyed down to minSize; 0 disables shrinking
+        public Builder<T> idleTimeout(long timeout, TimeUnit unit) {
+            this.idleTimeoutNanos = unit.toNanos(timeout);
+            return this;
+        }
+
+        // Resources held for longer are reported with the stack trace of the borrow; 0 disables
+        public Builder<T> leakDetectionThreshold(long threshold, TimeUnit unit) {
+            this.leakThresholdNanos = unit.toNanos(threshold);
+            return this;
+        }
+
+        // Keeps the most recent borrows held for longer in PoolStats; 0 disables
+        public Builder<T> longHoldThreshold(long threshold, TimeUnit unit) {
+            this.longHoldNanos = unit.toNanos(threshold);
+            return this;
+        }
+
+        public Builder<T> validateOnBorrow(boolean validate) {
+            this.validateOnBorrow = validate;
+            return this;
+        }
+
+        // Worth disabling for short-lived (e.g. virtual) threads, which never hit their cache
+        public Builder<T> threadLocalCache(boolean enabled) {
+            this.threadLocalCache = enabled;
+            return this;
+        }
+
+        public Builder<T> housekeepingPeriod(long period, TimeUnit unit) {
+            this.housekeepingMillis = Math.max(1, unit.toMillis(period));
+            return this;
+        }
+
+        public ObjectPool<T> build() {
+            if (maxSize <= 0 || minSize < 0 || minSize > maxSize) {
+                throw new IllegalArgumentException("Require 0 <= minSize <= maxSize and maxSize > 0");
+            }
+            return new ObjectPool<>(this);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package singleton.eb;
+
+public class PoolExhaustedException extends RuntimeException {
+    public PoolExhaustedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,94 @@
+package singleton.eb;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point-in-time view of an ObjectPool. Gauges are read when the snapshot is taken;
+ * histograms (in nanoseconds) and counters are cumulative since the pool was built.
+ */
+public class PoolStats {
+
+    // A borrow that held its resource longer than the configured threshold
+    public static class LongHold {
+        private final String resource;
+        private final String thread;
+        private final long heldNanos;
+        private final Throwable borrowSite;
+
+        LongHold(String resource, String thread, long heldNanos, Throwable borrowSite) {
+            this.resource = resource;
+            this.thread = thread;
+            this.heldNanos = heldNanos;
+            this.borrowSite = borrowSite;
+        }
+
+        public String getResource() { return resource; }
+        public String getThread() { return thread; }
+        public long getHeldMillis() { return TimeUnit.NANOSECONDS.toMillis(heldNanos); }
+        // Only captured when leak detection is enabled, null otherwise
+        public Throwable getBorrowSite() { return borrowSite; }
+
+        @Override
+        public String toString() {
+            return resource + " held " + getHeldMillis() + "ms by " + thread;
+        }
+    }
+
+    private final int total;
+    private final int idle;
+    private final int waiting;
+    private final int minSize;
+    private final int maxSize;
+    private final LatencySnapshot waitTime;
+    private final LatencySnapshot holdTime;
+    private final long timeouts;
+    private final long exhaustions;
+    private final long created;
+    private final long destroyed;
+    private final List<LongHold> longHolds;
+
+    PoolStats(int total, int idle, int waiting, int minSize, int maxSize,
+              LatencySnapshot waitTime, LatencySnapshot holdTime, long timeouts, long exhaustions,
+              long created, long destroyed, List<LongHold> longHolds) {
+        this.total = total;
+        this.idle = idle;
+        this.waiting = waiting;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.waitTime = waitTime;
+        this.holdTime = holdTime;
+        this.timeouts = timeouts;
+        this.exhaustions = exhaustions;
+        this.created = created;
+        this.destroyed = destroyed;
+        this.longHolds = List.copyOf(longHolds);
+    }
+
+    public int getTotal() { return total; }
+    public int getIdle() { return idle; }
+    public int getInUse() { return Math.max(0, total - idle); }
+    public int getWaiting() { return waiting; }
+    public int getMinSize() { return minSize; }
+    public int getMaxSize() { return maxSize; }
+    public double getUtilization() { return maxSize == 0 ? 0 : (double) getInUse() / maxSize; }
+    public LatencySnapshot getWaitTime() { return waitTime; }
+    public LatencySnapshot getHoldTime() { return holdTime; }
+    // Borrows that gave up after their timeout
+    public long getTimeouts() { return timeouts; }
+    // Borrows that found every resource in use with the pool already at maxSize
+    public long getExhaustions() { return exhaustions; }
+    public long getCreated() { return created; }
+    public long getDestroyed() { return destroyed; }
+    // Most recent long holds, oldest first
+    public List<LongHold> getLongHolds() { return longHolds; }
+
+    @Override
+    public String toString() {
+        return String.format("total=%d (min=%d, max=%d), inUse=%d, idle=%d, waiting=%d, utilization=%.0f%%%n"
+                        + "  wait(ns): %s%n  hold(ns): %s%n"
+                        + "  timeouts=%d, exhaustions=%d, created=%d, destroyed=%d, longHolds=%s",
+                total, minSize, maxSize, getInUse(), idle, waiting, getUtilization() * 100,
+                waitTime, holdTime, timeouts, exhaustions, created, destroyed, longHolds);
+    }
+}
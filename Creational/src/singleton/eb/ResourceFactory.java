@@ -0,0 +1,12 @@
+package singleton.eb;
+
+// Supplies, checks and disposes of the resources held by an ObjectPool
+public interface ResourceFactory<T> {
+
+    T create() throws Exception;
+
+    // Called on borrow; a resource that fails validation is destroyed and replaced
+    default boolean validate(T resource) { return true; }
+
+    default void destroy(T resource) {}
+}
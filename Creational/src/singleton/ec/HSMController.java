@@ -1,51 +1,778 @@
 package singleton.ec;
 
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.crypto.KeyGenerator;
 
 public class HSMController {
 
-    private static final HSMController INSTANCE = new HSMController();
+    // One lane per device; override with -Dhsm.lanes / -Dhsm.queueCapacity
+    private static final HSMController INSTANCE = new HSMController(
+            Integer.getInteger("hsm.lanes", 4), Integer.getInteger("hsm.queueCapacity", 1024));
 
-    // Internal queue to serialize hardware access
-    private final ExecutorService hardwareBus;
+    // Consecutive failed calls that take a lane out of rotation, and how long before a
+    // single probe request is let through to test it
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final long PROBE_AFTER_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final int MAX_ATTEMPTS = 2;
 
-    private HSMController() {
-        this.hardwareBus = Executors.newSingleThreadExecutor(r -> new Thread(r, "hsm-driver"));
+    public static final String DEFAULT_KEY = "default";
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    // Served strictly in this order; FIFO within a class
+    public enum Priority {
+        INTERACTIVE,  // Latency-sensitive, e.g. payment authorisation
+        NORMAL,
+        BATCH         // Bulk jobs; may not take the last quarter of a lane's queue
+    }
+
+    public enum OverflowPolicy {
+        REJECT,  // Fail the future immediately when every lane is full
+        BLOCK    // Block the caller until any lane has room, up to the configured timeout
+    }
+
+    private static class SignRequest {
+        static final Comparator<SignRequest> ORDER = Comparator
+                .comparingInt((SignRequest r) -> r.priority.ordinal())
+                .thenComparingLong(r -> r.seq);
+
+        final String keyId;
+        final String payload;
+        final Priority priority;
+        // Latest deadline of everyone waiting on it; 0 = none
+        private long deadlineNanos;
+        final long seq = SEQUENCE.incrementAndGet();
+        final long enqueuedNanos = System.nanoTime();
+        final CompletableFuture<String> result = new CompletableFuture<>();
+        volatile Lane lane;
+        int attempts;
+
+        SignRequest(String keyId, String payload, Priority priority, long deadlineNanos) {
+            this.keyId = keyId;
+            this.payload = payload;
+            this.priority = priority;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        synchronized boolean expired(long now) {
+            return deadlineNanos != 0 && now - deadlineNanos >= 0;
+        }
+
+        synchronized long deadline() {
+            return deadlineNanos;
+        }
+
+        // A joiner keeps the hardware call alive until its own deadline, or forever
+        synchronized void extendDeadline(long deadline) {
+            if (deadlineNanos == 0) return;
+            if (deadline == 0 || deadline - deadlineNanos > 0) deadlineNanos = deadline;
+        }
+    }
+
+    // One hardware call shared by every caller asking for the same signature
+    private static class Flight {
+        final SignRequest request;
+        final CompletableFuture<String> shared = new CompletableFuture<>();
+        final AtomicInteger subscribers = new AtomicInteger(1);
+
+        Flight(SignRequest request) { this.request = request; }
+
+        // Fails once every subscriber has given up: the flight is being torn down
+        boolean join(long deadline) {
+            int n;
+            do {
+                n = subscribers.get();
+                if (n == 0) return false;
+            } while (!subscribers.compareAndSet(n, n + 1));
+            request.extendDeadline(deadline);
+            return true;
+        }
+    }
+
+    // Identity of a signature: same key, same version of that key and same payload
+    private static final class SignKey {
+        final String keyId;
+        final long keyVersion;
+        final String payload;
+        final int hash;
+
+        SignKey(String keyId, long keyVersion, String payload) {
+            this.keyId = keyId;
+            this.keyVersion = keyVersion;
+            this.payload = payload;
+            this.hash = 31 * (31 * keyId.hashCode() + Long.hashCode(keyVersion)) + payload.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SignKey)) return false;
+            SignKey other = (SignKey) o;
+            return hash == other.hash && keyVersion == other.keyVersion
+                    && keyId.equals(other.keyId) && payload.equals(other.payload);
+        }
+
+        @Override
+        public int hashCode() { return hash; }
+    }
+
+    // LRU split into independently locked stripes, so concurrent sign() calls rarely contend
+    private static final class SignatureCache {
+        private static final int STRIPES = 16;
+        private final List<Map<SignKey, String>> stripes = new ArrayList<>(STRIPES);
+        final int maxEntries;
+
+        SignatureCache(int maxEntries) {
+            this.maxEntries = maxEntries;
+            int perStripe = Math.max(1, (maxEntries + STRIPES - 1) / STRIPES);
+            for (int i = 0; i < STRIPES; i++) {
+                stripes.add(new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<SignKey, String> eldest) {
+                        return size() > perStripe;
+                    }
+                });
+            }
+        }
+
+        private Map<SignKey, String> stripe(SignKey key) {
+            int h = key.hash;
+            return stripes.get((h ^ (h >>> 16)) & (STRIPES - 1));
+        }
+
+        String get(SignKey key) {
+            Map<SignKey, String> stripe = stripe(key);
+            synchronized (stripe) { return stripe.get(key); }
+        }
+
+        void put(SignKey key, String signature) {
+            Map<SignKey, String> stripe = stripe(key);
+            synchronized (stripe) { stripe.put(key, signature); }
+        }
+    }
+
+    public static class LaneStatus {
+        private final int id;
+        private final boolean healthy;
+        private final int load;
+        private final long signed;
+        private final long failures;
+
+        LaneStatus(int id, boolean healthy, int load, long signed, long failures) {
+            this.id = id;
+            this.healthy = healthy;
+            this.load = load;
+            this.signed = signed;
+            this.failures = failures;
+        }
+
+        public int getId() { return id; }
+        public boolean isHealthy() { return healthy; }
+        public int getLoad() { return load; }
+        public long getSigned() { return signed; }
+        public long getFailures() { return failures; }
+
+        @Override
+        public String toString() {
+            return "lane-" + id + (healthy ? " UP" : " DOWN") + " load=" + load
+                    + " signed=" + signed + " failures=" + failures;
+        }
+    }
+
+    // One device: its own bounded queue and the only thread that talks to it
+    private class Lane {
+        final int id;
+        final int capacity;
+        // Unbounded heap bounded by the permits: cancelled work can be removed from the middle
+        final PriorityBlockingQueue<SignRequest> queue = new PriorityBlockingQueue<>(64, SignRequest.ORDER);
+        final Semaphore slots;
+        final AtomicInteger executing = new AtomicInteger();
+        final AtomicLong signed = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+        volatile int consecutiveFailures;
+        volatile boolean healthy = true;
+        volatile long downSinceNanos;
+        // Set while the one request testing a DOWN lane is queued or running
+        final AtomicBoolean probing = new AtomicBoolean();
+        volatile boolean faulty; // Simulated device fault
+
+        Lane(int id, int capacity) {
+            this.id = id;
+            this.capacity = capacity;
+            this.slots = new Semaphore(capacity);
+            Thread driver = new Thread(this::driverLoop, "hsm-driver-" + id);
+            driver.setDaemon(true);
+            driver.start();
+        }
+
+        int load() { return capacity - slots.availablePermits() + executing.get(); }
+
+        boolean offer(SignRequest request) {
+            // Keep headroom so a flood of batch work cannot lock out interactive requests.
+            // Taking the reserve together with our own slot makes the check atomic
+            int reserve = request.priority == Priority.BATCH ? capacity / 4 : 0;
+            if (!slots.tryAcquire(reserve + 1)) return false;
+            if (reserve > 0) slots.release(reserve);
+            enqueue(request);
+            return true;
+        }
+
+        private void enqueue(SignRequest request) {
+            request.lane = this;
+            queue.add(request);
+            // Cancelled or expired while we were routing it
+            if (request.result.isDone()) remove(request);
+        }
+
+        void remove(SignRequest request) {
+            if (queue.remove(request)) {
+                freeSlots(1);
+                if (!healthy) probing.set(false); // The probe was withdrawn; let another through
+            }
+        }
+
+        void freeSlots(int count) {
+            if (count == 0) return;
+            slots.release(count);
+            signalRoom();
+        }
+
+        boolean hasRoom(Priority priority) {
+            return healthy && slots.availablePermits() > (priority == Priority.BATCH ? capacity / 4 : 0);
+        }
+
+        private void collectBatch(List<SignRequest> batch) throws InterruptedException {
+            SignRequest first = queue.take();
+            freeSlots(1);
+            batch.add(first);
+            int max = maxBatchSize;
+            if (max == 1) return;
+
+            long deadline = first.enqueuedNanos + maxBatchDelayNanos;
+            freeSlots(queue.drainTo(batch, max - batch.size()));
+            while (batch.size() < max) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) break;
+                SignRequest next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) break;
+                freeSlots(1);
+                batch.add(next);
+                freeSlots(queue.drainTo(batch, max - batch.size()));
+            }
+        }
+
+        // Last check before the hardware: never spend device time on abandoned work
+        private void dropAbandoned(List<SignRequest> batch) {
+            long now = System.nanoTime();
+            for (Iterator<SignRequest> it = batch.iterator(); it.hasNext(); ) {
+                SignRequest request = it.next();
+                if (request.result.isDone()) {
+                    it.remove();
+                } else if (request.expired(now)) {
+                    request.result.completeExceptionally(
+                            new TimeoutException("Deadline passed before reaching the HSM"));
+                    it.remove();
+                }
+            }
+        }
+
+        // After the pause exactly one caller wins the right to send a probe request
+        boolean claimProbe() {
+            return !healthy && System.nanoTime() - downSinceNanos >= PROBE_AFTER_NANOS
+                    && probing.compareAndSet(false, true);
+        }
+
+        private void onSuccess() {
+            consecutiveFailures = 0;
+            if (!healthy) {
+                healthy = true; // The probe went through: back in rotation
+                probing.set(false);
+                System.err.println("[HSM] lane-" + id + " back UP");
+            }
+        }
+
+        private void driverLoop() {
+            List<SignRequest> batch = new ArrayList<>();
+            try {
+                while (true) {
+                    collectBatch(batch);
+                    dropAbandoned(batch);
+                    if (batch.isEmpty()) {
+                        if (!healthy) probing.set(false); // The probe was abandoned
+                        continue;
+                    }
+                    executing.set(batch.size());
+                    try {
+                        List<String> signatures = batch.size() == 1
+                                ? List.of(unsafeHardwareCall(this, batch.get(0)))
+                                : unsafeHardwareBatchCall(this, batch);
+                        for (int i = 0; i < batch.size(); i++) batch.get(i).result.complete(signatures.get(i));
+                        signed.addAndGet(batch.size());
+                        onSuccess();
+                    } catch (IllegalArgumentException e) {
+                        // The request, not the device, is at fault
+                        onBadRequest(batch, e);
+                    } catch (RuntimeException e) {
+                        if (Thread.currentThread().isInterrupted()) {
+                            // Shutting down, not a device fault: fail the batch and stop
+                            for (SignRequest request : batch) request.result.completeExceptionally(e);
+                            return;
+                        }
+                        // A failed call fails its own batch, never the driver thread
+                        onFailure(batch, e);
+                    }
+                    executing.set(0);
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                for (SignRequest request : batch) request.result.completeExceptionally(e);
+            }
+        }
+
+        // Fails only the requests the backend refuses; in a batch the others are signed one by one
+        private void onBadRequest(List<SignRequest> batch, IllegalArgumentException error) {
+            if (batch.size() == 1) {
+                batch.get(0).result.completeExceptionally(error);
+                if (!healthy) probing.set(false); // Says nothing about the device; probe again
+                return;
+            }
+            for (SignRequest request : batch) {
+                try {
+                    request.result.complete(unsafeHardwareCall(this, request));
+                    signed.incrementAndGet();
+                    onSuccess();
+                } catch (IllegalArgumentException e) {
+                    request.result.completeExceptionally(e);
+                } catch (RuntimeException e) {
+                    List<SignRequest> failed = new ArrayList<>();
+                    failed.add(request);
+                    onFailure(failed, e);
+                }
+            }
+        }
+
+        private void onFailure(List<SignRequest> batch, RuntimeException error) {
+            failures.incrementAndGet();
+            if (!healthy) {
+                // Failed probe: stay down for another pause
+                downSinceNanos = System.nanoTime();
+                probing.set(false);
+            } else if (++consecutiveFailures >= FAILURE_THRESHOLD) {
+                healthy = false;
+                downSinceNanos = System.nanoTime();
+                System.err.println("[HSM] lane-" + id + " marked DOWN: " + error.getMessage());
+                // Drain: queued work moves to the remaining lanes
+                freeSlots(queue.drainTo(batch));
+            }
+            for (SignRequest request : batch) {
+                if (++request.attempts < MAX_ATTEMPTS || !healthy) reroute(request, this, error);
+                else request.result.completeExceptionally(error);
+            }
+        }
+    }
+
+    private final Lane[] lanes;
+    private volatile SignerBackend backend = new SimulatedHsmBackend();
+    private volatile OverflowPolicy overflowPolicy = OverflowPolicy.REJECT;
+    private volatile long blockTimeoutNanos;
+    // BLOCK callers park here until any lane frees a slot
+    private final ReentrantLock roomLock = new ReentrantLock();
+    private final Condition roomFreed = roomLock.newCondition();
+    private final AtomicInteger blockedSubmitters = new AtomicInteger();
+
+    // Concurrent requests for the same signature share one hardware call
+    private final ConcurrentHashMap<SignKey, Flight> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong deduplicated = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+
+    // Recent signatures of deterministic keys; null while disabled. Replaced, not cleared,
+    // when the backend changes, so signatures still in flight land in the discarded one
+    private volatile SignatureCache signatureCache;
+    private final AtomicLong cacheHits = new AtomicLong();
+
+    // Batching is off (one payload per call) until enableBatching is called
+    private volatile int maxBatchSize = 1;
+    private volatile long maxBatchDelayNanos = 0;
+
+    private HSMController(int laneCount, int queueCapacity) {
+        this.lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) lanes[i] = new Lane(i, queueCapacity);
     }
 
     public static HSMController getInstance() { return INSTANCE; }
 
     // API: Returns immediately, does not block the caller
     public CompletableFuture<String> sign(String payload) {
-        return CompletableFuture.supplyAsync(() -> unsafeHardwareCall(payload), hardwareBus);
+        return sign(DEFAULT_KEY, payload);
     }
 
-    // The dangerous, single-threaded hardware interaction
-    private String unsafeHardwareCall(String payload) {
+    public CompletableFuture<String> sign(String keyId, String payload) {
+        return sign(keyId, payload, Priority.NORMAL, 0);
+    }
+
+    /**
+     * Returns without waiting for the hardware. A request for a signature that is already
+     * in flight joins that call instead of queueing another one, unless the call waits in a
+     * lower priority class; then it is signed separately. Under REJECT the future fails with
+     * RejectedExecutionException when every lane is full; under BLOCK the caller waits for
+     * room first, but not past its deadline.
+     *
+     * With a deadline (timeoutMillis > 0) the future fails with TimeoutException once it
+     * passes. Joined callers each keep their own deadline; the shared call is dropped before
+     * it reaches the hardware once every caller has timed out or cancelled.
+     */
+    public CompletableFuture<String> sign(String keyId, String payload, Priority priority, long timeoutMillis) {
+        SignatureCache current = signatureCache; // Read before the backend; see setBackend
+        SignerBackend device = backend;
+        if (!device.supportsKey(keyId)) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Unknown key: " + keyId));
+        }
+        SignKey key = new SignKey(keyId, device.keyVersion(keyId), payload);
+        SignatureCache cache = device.isDeterministic(keyId) ? current : null;
+        if (cache != null) {
+            String cached = cache.get(key);
+            if (cached != null) {
+                cacheHits.incrementAndGet();
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+
+        long deadline = timeoutMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : 0;
+        SignRequest request = new SignRequest(keyId, payload, priority, deadline);
+        Flight flight = new Flight(request);
+        while (true) {
+            Flight existing = inFlight.putIfAbsent(key, flight);
+            if (existing == null) break;
+            // Joining would inherit the flight's lower class; sign separately (unregistered)
+            if (existing.request.priority.compareTo(priority) > 0) break;
+            if (existing.join(deadline)) {
+                deduplicated.incrementAndGet();
+                return subscribe(existing, timeoutMillis);
+            }
+            inFlight.remove(key, existing); // Every caller gave up on it; start afresh
+        }
+
+        // Cache, then unregister, then complete the callers: a follow-up call either joins
+        // this flight or finds the cached signature, and never sends the payload again
+        request.result.whenComplete((signature, error) -> {
+            if (error != null) {
+                inFlight.remove(key, flight);
+                Lane lane = request.lane;
+                if (lane != null) lane.remove(request);
+                flight.shared.completeExceptionally(error);
+                return;
+            }
+            if (cache != null) cache.put(key, signature);
+            inFlight.remove(key, flight);
+            flight.shared.complete(signature);
+        });
+        // Subscribe first so the caller's deadline is already armed while BLOCK waits
+        CompletableFuture<String> mine = subscribe(flight, timeoutMillis);
+        submit(request, null);
+        return mine;
+    }
+
+    // Each caller gets its own copy with its own deadline, so completing, cancelling or
+    // timing it out cannot affect the others
+    private CompletableFuture<String> subscribe(Flight flight, long timeoutMillis) {
+        CompletableFuture<String> mine = flight.shared.copy();
+        if (timeoutMillis > 0) mine.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        mine.whenComplete((signature, error) -> {
+            if (error instanceof TimeoutException) expired.incrementAndGet();
+            boolean gaveUp = error instanceof CancellationException || error instanceof TimeoutException;
+            if (gaveUp && flight.subscribers.decrementAndGet() == 0) flight.request.result.cancel(false);
+        });
+        return mine;
+    }
+
+    /**
+     * Keeps the most recent signatures (LRU) and answers repeats without the hardware.
+     * Only keys the backend reports as deterministic (e.g. RSA PKCS#1 v1.5, HMAC) are
+     * cached, and entries are tied to the key's version, so a replaced key is never
+     * answered with its predecessor's signature; 0 disables the cache. Recency is tracked
+     * per stripe, so eviction is approximately LRU across the whole cache.
+     */
+    public void setSignatureCacheSize(int maxEntries) {
+        signatureCache = maxEntries > 0 ? new SignatureCache(maxEntries) : null;
+    }
+
+    public long getDeduplicatedCount() { return deduplicated.get(); }
+
+    public long getCacheHitCount() { return cacheHits.get(); }
+
+    // Callers whose deadline passed before their signature arrived
+    public long getExpiredCount() { return expired.get(); }
+
+    // Swaps the device behind every lane and drops every cached signature; work already on
+    // a driver finishes on the old one
+    public void setBackend(SignerBackend backend) {
+        this.backend = backend;
+        SignatureCache cache = signatureCache;
+        // A sign() that still saw the old backend also read this cache, so its result
+        // cannot reach the replacement
+        if (cache != null) signatureCache = new SignatureCache(cache.maxEntries);
+    }
+
+    public void setOverflowPolicy(OverflowPolicy policy, long blockTimeoutMillis) {
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMillis);
+        this.overflowPolicy = policy;
+    }
+
+    /**
+     * Each lane's driver sends up to maxBatchSize queued payloads in one hardware call,
+     * waiting at most maxDelayMillis past the oldest payload's arrival for the batch to
+     * fill up.
+     */
+    public void enableBatching(int maxBatchSize, long maxDelayMillis) {
+        if (maxBatchSize < 1) throw new IllegalArgumentException("maxBatchSize must be at least 1");
+        this.maxBatchDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public void disableBatching() {
+        this.maxBatchSize = 1;
+    }
+
+    public List<LaneStatus> getLaneStatus() {
+        List<LaneStatus> status = new ArrayList<>(lanes.length);
+        for (Lane lane : lanes) {
+            status.add(new LaneStatus(lane.id, lane.healthy, lane.load(), lane.signed.get(), lane.failures.get()));
+        }
+        return status;
+    }
+
+    // For demos and drills: make a device fail every call until cleared
+    void simulateDeviceFault(int lane, boolean faulty) {
+        lanes[lane].faulty = faulty;
+    }
+
+    private void submit(SignRequest request, Lane exclude) {
+        // A DOWN lane due for a probe gets this one request; everyone else routes around it
+        for (Lane lane : lanes) {
+            if (lane != exclude && lane.claimProbe()) {
+                if (lane.offer(request)) return;
+                lane.probing.set(false);
+            }
+        }
+
+        Lane lane = leastLoaded(exclude);
+        if (lane != null && lane.offer(request)) return;
+
+        if (lane != null && overflowPolicy == OverflowPolicy.BLOCK && exclude == null) {
+            try {
+                if (awaitRoom(request)) return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                request.result.completeExceptionally(e);
+                return;
+            }
+        }
+        request.result.completeExceptionally(new RejectedExecutionException(
+                lane == null ? "No healthy HSM lane" : "All HSM lanes are full"));
+    }
+
+    // Retries every lane each time any of them frees a slot, until the block timeout or the
+    // request's deadline, whichever comes first. True once the request is queued or settled
+    private boolean awaitRoom(SignRequest request) throws InterruptedException {
+        long giveUpAt = System.nanoTime() + blockTimeoutNanos;
+        blockedSubmitters.incrementAndGet();
+        try {
+            while (true) {
+                Lane lane = leastLoaded(null);
+                if (lane == null) return false;
+                if (lane.offer(request)) return true;
+
+                long now = System.nanoTime();
+                if (request.expired(now)) {
+                    request.result.completeExceptionally(
+                            new TimeoutException("Deadline passed while waiting for a free HSM lane"));
+                    return true;
+                }
+                long remaining = giveUpAt - now;
+                long deadline = request.deadline();
+                if (deadline != 0) remaining = Math.min(remaining, deadline - now);
+                if (remaining <= 0 || request.result.isDone()) return false;
+
+                roomLock.lock();
+                try {
+                    // Checked under the lock, so a slot freed since the offer is not missed
+                    if (!anyRoom(request.priority)) roomFreed.awaitNanos(remaining);
+                } finally {
+                    roomLock.unlock();
+                }
+            }
+        } finally {
+            blockedSubmitters.decrementAndGet();
+        }
+    }
+
+    private boolean anyRoom(Priority priority) {
+        for (Lane lane : lanes) {
+            if (lane.hasRoom(priority)) return true;
+        }
+        return false;
+    }
+
+    // Lanes call this after freeing slots; costs a volatile read unless someone is blocked
+    private void signalRoom() {
+        if (blockedSubmitters.get() == 0) return;
+        roomLock.lock();
         try {
-            // Simulate hardware slowness (100ms)
-            Thread.sleep(100);
-            return "SIGNATURE_" + payload.toUpperCase();
-        } catch (InterruptedException e) {
-            return "ERROR";
+            roomFreed.signalAll();
+        } finally {
+            roomLock.unlock();
+        }
+    }
+
+    private void reroute(SignRequest request, Lane failed, RuntimeException cause) {
+        if (leastLoaded(failed) == null) request.result.completeExceptionally(cause);
+        else submit(request, failed);
+    }
+
+    // Healthy lanes only; DOWN lanes are reached through a probe
+    private Lane leastLoaded(Lane exclude) {
+        Lane best = null;
+        int bestLoad = Integer.MAX_VALUE;
+        for (Lane lane : lanes) {
+            if (lane == exclude || !lane.healthy) continue;
+            int load = lane.load();
+            if (load < bestLoad) {
+                best = lane;
+                bestLoad = load;
+            }
         }
+        return best;
+    }
+
+    // The dangerous, single-threaded hardware interaction
+    private String unsafeHardwareCall(Lane lane, SignRequest request) {
+        String signature = backend.sign(request.keyId, request.payload);
+        if (lane.faulty) throw new IllegalStateException("Device " + lane.id + " not responding");
+        return signature;
+    }
+
+    // One session for the whole batch; signatures come back in request order
+    private List<String> unsafeHardwareBatchCall(Lane lane, List<SignRequest> requests) {
+        List<String> keyIds = new ArrayList<>(requests.size());
+        List<String> payloads = new ArrayList<>(requests.size());
+        for (SignRequest request : requests) {
+            keyIds.add(request.keyId);
+            payloads.add(request.payload);
+        }
+        List<String> signatures = backend.signBatch(keyIds, payloads);
+        if (lane.faulty) throw new IllegalStateException("Device " + lane.id + " not responding");
+        return signatures;
     }
 
     // --- MAIN DRIVER ---
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
         HSMController hsm = HSMController.getInstance();
 
         System.out.println("--- Submitting 5 Async Requests ---");
         long start = System.currentTimeMillis();
+        List<CompletableFuture<Void>> done = new ArrayList<>();
 
         for (int i = 0; i < 5; i++) {
             final int id = i;
-            hsm.sign("data-" + id).thenAccept(sig -> {
+            done.add(hsm.sign("data-" + id).thenAccept(sig -> {
                 long duration = System.currentTimeMillis() - start;
                 System.out.println("Finished Req " + id + ": " + sig + " (at " + duration + "ms)");
-            });
+            }));
         }
 
         System.out.println("--- Main Thread Unblocked Immediately ---");
+        CompletableFuture.allOf(done.toArray(new CompletableFuture<?>[0])).join();
+
+        System.out.println("--- Batching: 200 Requests, up to 64 per call, 10ms max delay ---");
+        hsm.enableBatching(64, 10);
+        long batchStart = System.currentTimeMillis();
+        done.clear();
+        for (int i = 0; i < 200; i++) done.add(hsm.sign("doc-" + i).thenAccept(sig -> { }));
+        CompletableFuture.allOf(done.toArray(new CompletableFuture<?>[0])).join();
+        System.out.println("200 signatures in " + (System.currentTimeMillis() - batchStart) + "ms");
+
+        System.out.println("--- Device 0 fails: its work is rerouted and the lane drained ---");
+        hsm.disableBatching();
+        hsm.simulateDeviceFault(0, true);
+        done.clear();
+        for (int i = 0; i < 40; i++) {
+            done.add(hsm.sign("txn-" + i).handle((sig, error) -> null));
+        }
+        CompletableFuture.allOf(done.toArray(new CompletableFuture<?>[0])).join();
+        hsm.getLaneStatus().forEach(System.out::println);
+
+        System.out.println("--- 100 clients re-sign the same invoice ---");
+        hsm.simulateDeviceFault(0, false);
+        hsm.setSignatureCacheSize(10_000);
+        done.clear();
+        for (int i = 0; i < 100; i++) done.add(hsm.sign("billing", "invoice-42").thenAccept(sig -> { }));
+        CompletableFuture.allOf(done.toArray(new CompletableFuture<?>[0])).join();
+        hsm.sign("billing", "invoice-42").thenAccept(sig -> System.out.println("Cached: " + sig)).join();
+        System.out.println("Deduplicated=" + hsm.getDeduplicatedCount() + ", cache hits=" + hsm.getCacheHitCount());
+
+        System.out.println("--- Payments jump a queue of batch work; stale and cancelled work is dropped ---");
+        hsm.setSignatureCacheSize(0);
+        List<CompletableFuture<String>> bulk = new ArrayList<>();
+        for (int i = 0; i < 80; i++) bulk.add(hsm.sign("archive", "statement-" + i, Priority.BATCH, 0));
+        for (int i = 40; i < 80; i++) bulk.get(i).cancel(false); // The batch job gave up on half of it
+        long payStart = System.currentTimeMillis();
+        done.clear();
+        for (int i = 0; i < 4; i++) {
+            done.add(hsm.sign("payments", "auth-" + i, Priority.INTERACTIVE, 1000).thenAccept(sig ->
+                    System.out.println(sig + " after " + (System.currentTimeMillis() - payStart) + "ms")));
+        }
+        for (int i = 0; i < 20; i++) {
+            done.add(hsm.sign("reports", "report-" + i, Priority.NORMAL, 150).handle((sig, error) -> null));
+        }
+        CompletableFuture.allOf(done.toArray(new CompletableFuture<?>[0])).join();
+        CompletableFuture.allOf(bulk.subList(0, 40).toArray(new CompletableFuture<?>[0])).join();
+        System.out.println("Expired before reaching the HSM: " + hsm.getExpiredCount());
+        hsm.getLaneStatus().forEach(System.out::println);
+
+        System.out.println("--- Software backend: real ECDSA and HMAC keys, no hardware ---");
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(256);
+        KeyPair payments = generator.generateKeyPair();
+        SoftwareSignerBackend software = new SoftwareSignerBackend()
+                .addSigningKey("payments", payments.getPrivate(), payments.getPublic(), "SHA256withECDSA")
+                .addMacKey("default", KeyGenerator.getInstance("HmacSHA256").generateKey(), "HmacSHA256");
+        hsm.setBackend(software);
+        hsm.simulateDeviceFault(0, false);
+        hsm.setOverflowPolicy(OverflowPolicy.BLOCK, 5000);
+        hsm.enableBatching(64, 1);
+
+        String signature = hsm.sign("payments", "auth-0").join();
+        Signature verifier = Signature.getInstance("SHA256withECDSA");
+        verifier.initVerify(software.getPublicKey("payments"));
+        verifier.update("auth-0".getBytes(StandardCharsets.UTF_8));
+        System.out.println("ECDSA signature verifies: " + verifier.verify(Base64.getDecoder().decode(signature)));
+
+        // ECDSA costs about a millisecond per signature, HMAC a few microseconds
+        for (String keyId : new String[] {"payments", "default"}) {
+            int count = keyId.equals("payments") ? 2_000 : 20_000;
+            long softStart = System.nanoTime();
+            done.clear();
+            for (int i = 0; i < count; i++) done.add(hsm.sign(keyId, "txn-" + i).thenAccept(sig -> { }));
+            CompletableFuture.allOf(done.toArray(new CompletableFuture<?>[0])).join();
+            long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - softStart));
+            System.out.println(keyId + ": " + count + " signatures in " + millis + "ms ("
+                    + count * 1000L / millis + "/s)");
+        }
+        // Lane 0 rejoined after one probe request succeeded
+        hsm.getLaneStatus().forEach(System.out::println);
     }
 }
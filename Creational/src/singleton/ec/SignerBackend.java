@@ -0,0 +1,35 @@
+package singleton.ec;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The device behind an HSMController lane. Each lane calls its backend from its own
+ * driver thread only, but one backend instance is shared by all lanes.
+ *
+ * Throw IllegalArgumentException when the request itself cannot be signed (unknown or
+ * unusable key, bad payload): it fails that request only. Any other RuntimeException
+ * counts as a device failure and may take the lane out of rotation.
+ */
+public interface SignerBackend {
+
+    // Unknown keys are rejected up front instead of counting as a device failure
+    default boolean supportsKey(String keyId) { return true; }
+
+    // Whether signing the same payload twice yields the same bytes (HMAC, RSA PKCS#1 v1.5);
+    // only then may the controller answer repeats from its signature cache
+    default boolean isDeterministic(String keyId) { return false; }
+
+    // Changes whenever the key under keyId is replaced, so cached signatures of the old key
+    // are no longer returned
+    default long keyVersion(String keyId) { return 0; }
+
+    String sign(String keyId, String payload);
+
+    // One device session for many payloads; signatures come back in payload order
+    default List<String> signBatch(List<String> keyIds, List<String> payloads) {
+        List<String> signatures = new ArrayList<>(payloads.size());
+        for (int i = 0; i < payloads.size(); i++) signatures.add(sign(keyIds.get(i), payloads.get(i)));
+        return signatures;
+    }
+}
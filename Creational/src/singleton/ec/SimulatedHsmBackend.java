@@ -0,0 +1,51 @@
+package singleton.ec;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// The original stand-in: a slow device whose "signature" is the upper-cased payload
+public class SimulatedHsmBackend implements SignerBackend {
+
+    // Simulated hardware cost: opening a session dominates, each extra payload is cheap
+    private static final long SESSION_COST_MS = 100;
+    private static final long PER_PAYLOAD_COST_MS = 2;
+
+    @Override
+    public boolean isDeterministic(String keyId) {
+        return true;
+    }
+
+    @Override
+    public String sign(String keyId, String payload) {
+        try {
+            // Simulate hardware slowness (100ms)
+            Thread.sleep(SESSION_COST_MS);
+            return signature(keyId, payload);
+        } catch (InterruptedException e) {
+            throw interrupted(e);
+        }
+    }
+
+    @Override
+    public List<String> signBatch(List<String> keyIds, List<String> payloads) {
+        List<String> signatures = new ArrayList<>(payloads.size());
+        try {
+            Thread.sleep(SESSION_COST_MS + PER_PAYLOAD_COST_MS * payloads.size());
+            for (int i = 0; i < payloads.size(); i++) signatures.add(signature(keyIds.get(i), payloads.get(i)));
+        } catch (InterruptedException e) {
+            throw interrupted(e);
+        }
+        return signatures;
+    }
+
+    // An interrupted session signed nothing: fail the call rather than return a fake signature
+    private static IllegalStateException interrupted(InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return new IllegalStateException("HSM session interrupted", e);
+    }
+
+    private static String signature(String keyId, String payload) {
+        String signature = "SIGNATURE_" + payload.toUpperCase();
+        return HSMController.DEFAULT_KEY.equals(keyId) ? signature : signature + "@" + keyId;
+    }
+}
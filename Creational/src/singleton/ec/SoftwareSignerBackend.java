@@ -0,0 +1,220 @@
+package singleton.ec;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.interfaces.RSAKey;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Software stand-in for the HSM using JDK providers: Signature for asymmetric keys
+ * (e.g. SHA256withECDSA, SHA256withRSA) and Mac for secret keys (e.g. HmacSHA256).
+ *
+ * Signature and Mac objects are not thread-safe and initSign/init are the expensive
+ * part, so every thread keeps its own instance per key, initialised on first use and
+ * re-initialised when the key is replaced. Payloads are encoded, signed and Base64-encoded
+ * in per-thread buffers that are reused; the only allocation per call is the returned string.
+ *
+ * There is no device here: every failure is the request's (unknown or unusable key,
+ * bad payload) and is reported as IllegalArgumentException.
+ */
+public class SoftwareSignerBackend implements SignerBackend {
+    private static final byte[] BASE64_ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(StandardCharsets.US_ASCII);
+    private static final int MIN_OUTPUT_BYTES = 512;
+
+    private static class KeyEntry {
+        final Key key;
+        final String algorithm;
+        final PublicKey publicKey;
+        final long version;
+        final boolean deterministic;
+        final int maxSignatureBytes;
+
+        KeyEntry(Key key, String algorithm, PublicKey publicKey, long version) {
+            this.key = key;
+            this.algorithm = algorithm;
+            this.publicKey = publicKey;
+            this.version = version;
+            this.deterministic = isDeterministic(key, algorithm);
+            // RSA signatures are as long as the modulus; everything else fits the default buffer
+            this.maxSignatureBytes = key instanceof RSAKey
+                    ? Math.max(MIN_OUTPUT_BYTES, (((RSAKey) key).getModulus().bitLength() + 7) / 8)
+                    : MIN_OUTPUT_BYTES;
+        }
+    }
+
+    // A thread's initialised Signature or Mac, valid only for the key entry it was built from
+    private static class Engine {
+        final KeyEntry entry;
+        final Signature signer;
+        final Mac mac;
+
+        Engine(KeyEntry entry, Signature signer, Mac mac) {
+            this.entry = entry;
+            this.signer = signer;
+            this.mac = mac;
+        }
+    }
+
+    // Everything a thread needs to sign without allocating or re-initialising
+    private class ThreadState {
+        final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        final Map<String, Engine> engines = new HashMap<>();
+        ByteBuffer input = ByteBuffer.allocate(4096);
+        byte[] output = new byte[MIN_OUTPUT_BYTES];
+        byte[] base64 = new byte[base64Length(MIN_OUTPUT_BYTES)];
+
+        // UTF-8 bytes of the payload, in a buffer that only grows
+        ByteBuffer encode(String payload) {
+            CharBuffer chars = CharBuffer.wrap(payload);
+            input.clear();
+            encoder.reset();
+            while (true) {
+                CoderResult result = encoder.encode(chars, input, true);
+                if (result.isUnderflow()) result = encoder.flush(input);
+                if (result.isUnderflow()) break;
+                if (result.isOverflow()) {
+                    ByteBuffer larger = ByteBuffer.allocate(input.capacity() * 2);
+                    input.flip();
+                    larger.put(input);
+                    input = larger;
+                } else {
+                    throw new IllegalArgumentException("Payload is not valid UTF-16: " + result);
+                }
+            }
+            input.flip();
+            return input;
+        }
+
+        // Rebuilt when the key under keyId was replaced since this thread last used it
+        Engine engine(String keyId, KeyEntry entry) throws GeneralSecurityException {
+            Engine engine = engines.get(keyId);
+            if (engine != null && engine.entry == entry) return engine;
+            if (entry.key instanceof SecretKey) {
+                Mac mac = Mac.getInstance(entry.algorithm);
+                mac.init(entry.key);
+                engine = new Engine(entry, null, mac);
+            } else {
+                Signature signer = Signature.getInstance(entry.algorithm);
+                signer.initSign((PrivateKey) entry.key);
+                engine = new Engine(entry, signer, null);
+            }
+            engines.put(keyId, engine);
+            return engine;
+        }
+
+        // Base64 of output[0, length) into the reusable buffer; returns the encoded length
+        int encodeBase64(int length) {
+            int needed = base64Length(length);
+            if (base64.length < needed) base64 = new byte[needed];
+            int in = 0;
+            int out = 0;
+            while (length - in >= 3) {
+                int bits = (output[in++] & 0xff) << 16 | (output[in++] & 0xff) << 8 | (output[in++] & 0xff);
+                base64[out++] = BASE64_ALPHABET[bits >>> 18];
+                base64[out++] = BASE64_ALPHABET[(bits >>> 12) & 0x3f];
+                base64[out++] = BASE64_ALPHABET[(bits >>> 6) & 0x3f];
+                base64[out++] = BASE64_ALPHABET[bits & 0x3f];
+            }
+            int rest = length - in;
+            if (rest > 0) {
+                int bits = (output[in] & 0xff) << 16 | (rest == 2 ? (output[in + 1] & 0xff) << 8 : 0);
+                base64[out++] = BASE64_ALPHABET[bits >>> 18];
+                base64[out++] = BASE64_ALPHABET[(bits >>> 12) & 0x3f];
+                base64[out++] = rest == 2 ? BASE64_ALPHABET[(bits >>> 6) & 0x3f] : (byte) '=';
+                base64[out++] = '=';
+            }
+            return out;
+        }
+    }
+
+    private static int base64Length(int bytes) {
+        return (bytes + 2) / 3 * 4;
+    }
+
+    // MACs, RSA PKCS#1 v1.5 and EdDSA; ECDSA, DSA and RSA-PSS draw fresh randomness per signature
+    private static boolean isDeterministic(Key key, String algorithm) {
+        if (key instanceof SecretKey) return true;
+        String name = algorithm.toUpperCase();
+        if (name.equals("ED25519") || name.equals("ED448") || name.equals("EDDSA")) return true;
+        return name.endsWith("WITHRSA");
+    }
+
+    private final Map<String, KeyEntry> keys = new ConcurrentHashMap<>();
+    private final AtomicLong keyVersions = new AtomicLong();
+    private final ThreadLocal<ThreadState> state = ThreadLocal.withInitial(ThreadState::new);
+
+    public SoftwareSignerBackend addSigningKey(String keyId, PrivateKey key, PublicKey publicKey, String algorithm) {
+        keys.put(keyId, new KeyEntry(key, algorithm, publicKey, keyVersions.incrementAndGet()));
+        return this;
+    }
+
+    public SoftwareSignerBackend addMacKey(String keyId, SecretKey key, String algorithm) {
+        keys.put(keyId, new KeyEntry(key, algorithm, null, keyVersions.incrementAndGet()));
+        return this;
+    }
+
+    // For verification by callers; null for MAC keys
+    public PublicKey getPublicKey(String keyId) {
+        KeyEntry entry = keys.get(keyId);
+        return entry == null ? null : entry.publicKey;
+    }
+
+    @Override
+    public boolean supportsKey(String keyId) {
+        return keys.containsKey(keyId);
+    }
+
+    @Override
+    public boolean isDeterministic(String keyId) {
+        KeyEntry entry = keys.get(keyId);
+        return entry != null && entry.deterministic;
+    }
+
+    @Override
+    public long keyVersion(String keyId) {
+        KeyEntry entry = keys.get(keyId);
+        return entry == null ? 0 : entry.version;
+    }
+
+    @Override
+    public String sign(String keyId, String payload) {
+        KeyEntry entry = keys.get(keyId);
+        if (entry == null) throw new IllegalArgumentException("Unknown key: " + keyId);
+        ThreadState thread = state.get();
+        ByteBuffer input = thread.encode(payload);
+        try {
+            Engine engine = thread.engine(keyId, entry);
+            if (thread.output.length < entry.maxSignatureBytes) thread.output = new byte[entry.maxSignatureBytes];
+            int length;
+            if (engine.mac != null) {
+                engine.mac.update(input);
+                length = engine.mac.getMacLength();
+                if (thread.output.length < length) thread.output = new byte[length];
+                engine.mac.doFinal(thread.output, 0); // Resets the Mac for the next call
+            } else {
+                engine.signer.update(input);
+                length = engine.signer.sign(thread.output, 0, thread.output.length); // Resets as well
+            }
+            int encoded = thread.encodeBase64(length); // May grow the buffer, so read it afterwards
+            return new String(thread.base64, 0, encoded, StandardCharsets.US_ASCII);
+        } catch (GeneralSecurityException | RuntimeException e) {
+            // Its state is unknown after a failure: the next call starts from a fresh instance
+            thread.engines.remove(keyId);
+            throw new IllegalArgumentException("Signing with " + keyId + " failed", e);
+        }
+    }
+}
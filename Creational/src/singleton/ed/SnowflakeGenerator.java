@@ -6,19 +6,52 @@ import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
 
 public class SnowflakeGenerator {
     private static SnowflakeGenerator instance;
 
     // Bit configuration
-    private long sequence = 0L;
-    private long lastTimestamp = -1L;
-    private final long machineId;
+    private static final long EPOCH = 1609459200000L;
+    private static final int SEQUENCE_BITS = 12;
+    private static final int MACHINE_BITS = 10;
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+    private static final long MAX_MACHINE_ID = (1L << MACHINE_BITS) - 1;
+
+    // What nextId does when the clock reads earlier than the last issued timestamp
+    public enum ClockRegressionPolicy {
+        WAIT,   // Park until the clock catches up (up to the tolerance)
+        FAIL,   // Throw at once
+        BORROW  // Keep issuing from the last timestamp, running ahead of the clock (up to the tolerance)
+    }
+
+    // Last issued (timestamp << SEQUENCE_BITS | sequence); every update is a single CAS
+    private final AtomicLong state = new AtomicLong();
+    private final long machineBits;
+    private final ClockRegressionPolicy policy;
+    private final long toleranceMillis;
+    private final LongSupplier clock;
 
-    private SnowflakeGenerator(long machineId) { this.machineId = machineId; }
+    SnowflakeGenerator(long machineId, ClockRegressionPolicy policy, long toleranceMillis, LongSupplier clock) {
+        if (machineId < 0 || machineId > MAX_MACHINE_ID) {
+            throw new IllegalArgumentException("machineId must be in [0, " + MAX_MACHINE_ID + "]");
+        }
+        this.machineBits = machineId << SEQUENCE_BITS;
+        this.policy = policy;
+        this.toleranceMillis = toleranceMillis;
+        this.clock = clock;
+    }
 
     public static synchronized void init(long machineId) {
-        if (instance == null) instance = new SnowflakeGenerator(machineId);
+        init(machineId, ClockRegressionPolicy.WAIT, 10);
+    }
+
+    public static synchronized void init(long machineId, ClockRegressionPolicy policy, long toleranceMillis) {
+        if (instance == null) {
+            instance = new SnowflakeGenerator(machineId, policy, toleranceMillis, System::currentTimeMillis);
+        }
     }
 
     public static SnowflakeGenerator getInstance() {
@@ -26,27 +59,53 @@ public class SnowflakeGenerator {
         return instance;
     }
 
-    // Critical Section: Only one thread can generate an ID at a time
-    public synchronized long nextId() {
-        long currentTimestamp = System.currentTimeMillis();
-
-        if (currentTimestamp == lastTimestamp) {
-            // Collision handling: increment sequence
-            sequence = (sequence + 1) & 4095; // 12 bits mask
-            if (sequence == 0) {
-                // Sequence overflow: wait for next millisecond
-                while (currentTimestamp <= lastTimestamp) {
-                    currentTimestamp = System.currentTimeMillis();
-                }
+    /**
+     * Lock-free: each caller reads the packed state, computes the successor and CASes it
+     * in, retrying on contention. When the 12-bit sequence of the current millisecond
+     * runs out, callers spin until the clock ticks (or, under BORROW, move on to the
+     * next millisecond), but nobody holds a lock while doing so.
+     */
+    public long nextId() {
+        while (true) {
+            long last = state.get();
+            // Read after the state, so a real regression is the only way now < lastTs (bar BORROW)
+            long now = clock.getAsLong() - EPOCH;
+            long lastTs = last >>> SEQUENCE_BITS;
+            long next;
+
+            if (now > lastTs) {
+                next = now << SEQUENCE_BITS;
+            } else if (now < lastTs && policy != ClockRegressionPolicy.BORROW) {
+                awaitClock(lastTs - now);
+                continue;
+            } else if (lastTs - now > toleranceMillis) {
+                throw regression(lastTs - now);
+            } else if ((last & MAX_SEQUENCE) != MAX_SEQUENCE) {
+                next = last + 1;
+            } else if (policy == ClockRegressionPolicy.BORROW && lastTs + 1 - now <= toleranceMillis) {
+                // Sequence exhausted: borrow the next millisecond instead of waiting for it
+                next = (lastTs + 1) << SEQUENCE_BITS;
+            } else {
+                // Sequence exhausted: wait for the next millisecond
+                Thread.onSpinWait();
+                continue;
+            }
+
+            if (state.compareAndSet(last, next)) {
+                // Bit shifting to create 64-bit ID
+                return ((next >>> SEQUENCE_BITS) << (SEQUENCE_BITS + MACHINE_BITS)) | machineBits | (next & MAX_SEQUENCE);
             }
-        } else {
-            sequence = 0L;
         }
+    }
 
-        lastTimestamp = currentTimestamp;
+    private void awaitClock(long behindMillis) {
+        if (policy == ClockRegressionPolicy.FAIL || behindMillis > toleranceMillis) throw regression(behindMillis);
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(behindMillis));
+    }
 
-        // Bit shifting to create 64-bit ID
-        return ((currentTimestamp - 1609459200000L) << 22) | (machineId << 12) | sequence;
+    private IllegalStateException regression(long behindMillis) {
+        return new IllegalStateException("Clock moved backwards by " + behindMillis + "ms (policy " + policy
+                + ", tolerance " + toleranceMillis + "ms)");
     }
 
     // --- MAIN DRIVER ---
@@ -73,5 +132,28 @@ public class SnowflakeGenerator {
 
         System.out.println("Total Unique IDs: " + uniqueIds.size());
         System.out.println("Collisions: " + (10000 - uniqueIds.size()));
+
+        System.out.println("--- Clock steps back 3ms ---");
+        AtomicLong fakeClock = new AtomicLong();
+        for (ClockRegressionPolicy policy : ClockRegressionPolicy.values()) {
+            long base = System.currentTimeMillis();
+            fakeClock.set(base);
+            SnowflakeGenerator local = new SnowflakeGenerator(7, policy, 5, () -> fakeClock.get());
+            long before = local.nextId();
+            fakeClock.set(base - 3);
+            try {
+                // WAIT would park until the clock catches up; move it forward from another thread
+                if (policy == ClockRegressionPolicy.WAIT) {
+                    new Thread(() -> {
+                        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(3));
+                        fakeClock.set(base + 1);
+                    }).start();
+                }
+                long after = local.nextId();
+                System.out.println(policy + ": issued " + after + (after > before ? " (still increasing)" : " (NOT increasing)"));
+            } catch (IllegalStateException e) {
+                System.out.println(policy + ": " + e.getMessage());
+            }
+        }
     }
 }